@@ -1,15 +1,19 @@
 /*****************************************************************************
  *  Author:         Yan Xu
  *  Written:        9/14/2016
- *  Last updated:   9/14/2016
+ *  Last updated:   10/17/2026
  *
  *  Compilation:    javac BruteCollinearPoints.java;
  *  Execution:      java BruteCollinearPoints;
  *  Dependency:     Point.java
+ *                  SegmentBuffer.java
+ *                  SegmentSink.java
  *                  java.util.Arrays
  *
  *  BruteCollinearPoints is a brute-force method to find every(maximal) line
- *  segment that connects a subset of 4 of the points.
+ *  segment that connects a subset of 4 of the points. Segments are kept as
+ *  point indices in a SegmentBuffer, or streamed to a SegmentSink, and only
+ *  become LineSegments when segments() is called.
  *****************************************************************************/
 import java.util.Arrays;
 import edu.princeton.cs.algs4.In;
@@ -17,7 +21,7 @@ import edu.princeton.cs.algs4.StdDraw;
 import edu.princeton.cs.algs4.StdOut;
 
 public class BruteCollinearPoints {
-    private final LineSegment[] Segment;
+    private final SegmentBuffer Segment;   // null if the segments went to a sink
     private final int count;
     /**
      * constructor: finds all lines segments containing 4 points
@@ -26,9 +30,20 @@ public class BruteCollinearPoints {
      * @throws IllegalArgumentException if the argument to the constructor contains a repeated point.
      */
     public BruteCollinearPoints(Point[] points){
+        this(points, null);
+    }
+
+    /**
+     * constructor: finds all lines segments containing 4 points and streams them to a
+     * sink, as they are found, instead of keeping them
+     *
+     * @param points: all the points in the array
+     * @param sink: receives every segment; null to keep them for segments()
+     * @throws IllegalArgumentException if the argument to the constructor contains a repeated point.
+     */
+    public BruteCollinearPoints(Point[] points, SegmentSink sink){
         int count_temp = 0;
         int length = points.length;
-        LineSegment[] Segment_temp = new LineSegment[50 * length];
         // sort the points array;
         Arrays.sort(points);
         // find collinear points using brute force method;
@@ -36,6 +51,9 @@ public class BruteCollinearPoints {
             if(points[n].slopeTo(points[n + 1]) == Double.NEGATIVE_INFINITY)
                 throw new java.lang.IllegalArgumentException();
         }
+        // segments refer to the points by index: keep a copy the caller cannot change
+        points = points.clone();
+        SegmentBuffer Segment_temp = new SegmentBuffer(points);
         for(int i = 0; i < length - 3; i++){
             for(int j = i + 1; j < length - 2; j++) {
                 for (int k = j + 1; k < length - 1; k++) {
@@ -47,18 +65,15 @@ public class BruteCollinearPoints {
                                 && points[i].compareTo(points[j]) < 1
                                 && points[j].compareTo(points[k]) < 1
                                 && points[k].compareTo(points[l]) < 1) {
-                            Segment_temp[count_temp] = new LineSegment(points[i], points[l]);
+                            if (sink != null) sink.segment(points[i], points[l]);
+                            else Segment_temp.add(i, l);
                             count_temp++;
                         }
                     }
                 }
             }
         }
-        // resize the Segment array;
-        Segment = new LineSegment[count_temp];
-        for(int k = 0; k < count_temp; k++){
-            Segment[k] = Segment_temp[k];
-        }
+        Segment = sink == null ? Segment_temp : null;
         count = count_temp;
     }
 
@@ -66,8 +81,16 @@ public class BruteCollinearPoints {
         return count;
     }
 
+    /**
+     * the segments found, made on every call
+     *
+     * @return LineSegment[]: a new array of the segments
+     * @throws IllegalStateException if the segments were streamed to a sink
+     */
     public LineSegment[] segments(){
-        return Segment;
+        if (Segment == null)
+            throw new java.lang.IllegalStateException("segments were streamed to a sink");
+        return Segment.toSegments();
     }
     public static void main(String[] args) {
 
@@ -0,0 +1,152 @@
+/*****************************************************************************
+ *  Compilation:    javac DirectionMap.java;
+ *  Execution:      none
+ *  Dependency:     none
+ *
+ *  DirectionMap groups the neighbours of one origin by the line through the
+ *  origin they lie on. The key of a neighbour at (dx, dy) from the origin is
+ *  the reduced direction (dx/g, dy/g), g = gcd(|dx|, |dy|), turned so that
+ *  dy > 0 or (dy == 0 and dx > 0); points on both sides of the origin get the
+ *  same key. Keys are exact integers, so two points share a key if and only
+ *  if they are collinear with the origin.
+ *
+ *  The map is an open-addressing table with linear probing in primitive
+ *  arrays, at most half full. Every slot carries the generation it was
+ *  filled in, so clear() is O(1) and the map is reused for every origin
+ *  without allocating. For every direction it keeps the number of points and
+ *  the first and last point added; when points are added in natural order
+ *  these are the lowest and the highest point on the line besides the origin.
+ *****************************************************************************/
+import java.util.Arrays;
+
+class DirectionMap {
+    private final long[] keyX;       // reduced dx of the slot
+    private final long[] keyY;       // reduced dy of the slot
+    private final int[] generation;  // slot is in use if generation[slot] == current
+    private final int[] count;       // number of points added with this direction
+    private final int[] first;       // first point added with this direction
+    private final int[] last;        // last point added with this direction
+    private final int[] used;        // slots in the order they were filled
+    private final int shift;         // 64 - lg(table size)
+    private int current = 1;
+    private int size = 0;
+
+    /**
+     * constructor: create a map for up to capacity directions
+     *
+     * @param capacity: largest number of points added between two clear()
+     */
+    DirectionMap(int capacity) {
+        int bits = 1;
+        while ((1 << bits) < 2 * capacity) bits++;
+        int slots = 1 << bits;
+        keyX = new long[slots];
+        keyY = new long[slots];
+        generation = new int[slots];
+        count = new int[slots];
+        first = new int[slots];
+        last = new int[slots];
+        used = new int[capacity];
+        shift = 64 - bits;
+    }
+
+    /**
+     * remove every direction
+     */
+    void clear() {
+        if (++current == 0) {   // generations wrapped: forget the old ones for real
+            Arrays.fill(generation, 0);
+            current = 1;
+        }
+        size = 0;
+    }
+
+    /**
+     * add a point at (dx, dy) from the origin
+     *
+     * @param dx: x-coordinate of the point minus that of the origin
+     * @param dy: y-coordinate of the point minus that of the origin
+     * @param point: index of the point
+     * @return int value: slot of the direction of the point
+     * @throws IllegalArgumentException if (dx, dy) is (0, 0)
+     */
+    int add(long dx, long dy, int point) {
+        if (dx == 0 && dy == 0)
+            throw new java.lang.IllegalArgumentException();
+        if (dy < 0 || (dy == 0 && dx < 0)) {
+            dx = -dx;
+            dy = -dy;
+        }
+        long g = gcd(Math.abs(dx), dy);
+        dx /= g;
+        dy /= g;
+
+        int slot = (int) (((dx * 0x9E3779B97F4A7C15L) ^ dy) * 0xC2B2AE3D27D4EB4FL >>> shift);
+        while (generation[slot] == current) {
+            if (keyX[slot] == dx && keyY[slot] == dy) {
+                count[slot]++;
+                last[slot] = point;
+                return slot;
+            }
+            slot = (slot + 1) & (generation.length - 1);
+        }
+        generation[slot] = current;
+        keyX[slot] = dx;
+        keyY[slot] = dy;
+        count[slot] = 1;
+        first[slot] = point;
+        last[slot] = point;
+        used[size++] = slot;
+        return slot;
+    }
+
+    // number of slots in the table; every slot is in [0, slots())
+    int slots() {
+        return generation.length;
+    }
+
+    // number of directions since the last clear()
+    int size() {
+        return size;
+    }
+
+    // slot of the k-th direction added since the last clear()
+    int slot(int k) {
+        return used[k];
+    }
+
+    // the reduced direction of a slot
+    long dx(int slot) {
+        return keyX[slot];
+    }
+
+    long dy(int slot) {
+        return keyY[slot];
+    }
+
+    int count(int slot) {
+        return count[slot];
+    }
+
+    int first(int slot) {
+        return first[slot];
+    }
+
+    int last(int slot) {
+        return last[slot];
+    }
+
+    // binary gcd of two non-negative values, not both 0
+    static long gcd(long a, long b) {
+        if (a == 0) return b;
+        if (b == 0) return a;
+        int shift = Long.numberOfTrailingZeros(a | b);
+        a >>= Long.numberOfTrailingZeros(a);
+        while (b != 0) {
+            b >>= Long.numberOfTrailingZeros(b);
+            if (a > b) { long t = a; a = b; b = t; }
+            b -= a;
+        }
+        return a << shift;
+    }
+}
@@ -0,0 +1,596 @@
+/*****************************************************************************
+ *  Compilation:    javac ExternalCollinearPoints.java;
+ *  Execution:      java ExternalCollinearPoints input.txt memoryMB [tempdir];
+ *                  java ExternalCollinearPoints input.txt points.bin  (convert)
+ *  Dependency:     Point.java
+ *                  DirectionMap.java
+ *                  SegmentSink.java
+ *
+ *  ExternalCollinearPoints finds the maximal line segments of 4 or more
+ *  points of a set too large for memory, streaming them to a SegmentSink.
+ *  The points are read from a binary file
+ *
+ *      int    MAGIC ("PNTS"), big-endian
+ *      int    n, big-endian
+ *      int    x, int y for every point, big-endian
+ *
+ *  made from the text format of FastCollinearPoints.main by convert(), and
+ *  mapped 1GB at a time. Only one chunk of origins is held in memory. For a
+ *  chunk, every point q of the file is paired with every origin p of the
+ *  chunk into a tuple (p, reduced direction from p to q, q); the tuples with
+ *  the same origin and direction are one line through p. Tuples fill a
+ *  buffer sized from the memory budget; a full buffer is sorted by (p,
+ *  direction), the tuples of each line are folded into one record (number
+ *  of points, lowest and highest point) and the records are spilled to a
+ *  sorted run on disk. At the end of the chunk the runs are merged k ways,
+ *  folding again, and a line with 3 or more points besides p is a segment if
+ *  p is its lowest point, as in HashCollinearPoints.
+ *
+ *  A point is carried as one long whose order is the natural order of
+ *  points (y, then x), so a record needs no lookup in the points file.
+ *
+ *  A chunk is sized to spill about MAX_RUNS runs, but it holds at least one
+ *  origin, so for a large n and a small budget it spills more. No merge ever
+ *  reads more than MAX_RUNS runs: while there are more, the first MAX_RUNS
+ *  are merged and folded into one longer run. The stream buffers of the runs
+ *  being merged are sized out of the budget, next to the tuple buffer and
+ *  the chunk of origins. The work is still O(n^2), now with O(budget) memory
+ *  and O(chunk * n) disk, times log(runs) / log(MAX_RUNS) merge passes.
+ *****************************************************************************/
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import edu.princeton.cs.algs4.StdOut;
+
+public class ExternalCollinearPoints {
+    public static final int MAGIC = 0x504E5453;      // "PNTS"
+    private static final long WINDOW = 1L << 30;     // bytes mapped at a time
+    private static final int TUPLE_BYTES = 48;       // memory per buffered tuple
+    private static final int MAX_RUNS = 64;          // most runs merged at once
+
+    private final int count;
+
+    /**
+     * constructor: finds all lines segments containing 4(or more)points of a points file
+     * and streams them to a sink
+     *
+     * @param points: binary points file, see convert()
+     * @param memoryBytes: memory budget for the tuple buffer, the chunk of origins and the
+     *                     buffers of the runs being merged
+     * @param tempDir: directory of the sorted runs; null for the default temporary directory
+     * @param sink: receives every segment, chunk by chunk, origin by origin
+     * @throws IllegalArgumentException if the file contains a repeated point,
+     *                                  or if the budget is under 1MB; a repeated point is
+     *                                  only found with the chunk of its origins, so the
+     *                                  sink may already have received the segments of
+     *                                  the chunks before it
+     * @throws IOException if a file cannot be read or written, or points is not a points file
+     */
+    public ExternalCollinearPoints(File points, long memoryBytes, File tempDir, SegmentSink sink)
+            throws IOException {
+        if (memoryBytes < (1 << 20)) throw new java.lang.IllegalArgumentException("memory budget is under 1MB");
+        int found = 0;
+        try (PointFile file = new PointFile(points)) {
+            int n = file.n();
+            // an eighth of the budget buffers the MAX_RUNS runs of a merge and its output
+            int streamBytes = (int) Math.min(1 << 16, memoryBytes / 8 / (MAX_RUNS + 1));
+            long rest = memoryBytes - (long) streamBytes * (MAX_RUNS + 1);
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, rest / TUPLE_BYTES);
+            // enough origins to fill about MAX_RUNS buffers, no fewer than 1
+            int chunk = (int) Math.max(1, Math.min(n, (long) capacity * MAX_RUNS / Math.max(n, 1)));
+            chunk = Math.min(chunk, capacity / 2);
+            // the origins of a chunk take a long each, the rest of the budget is for tuples
+            Buffer buffer = new Buffer((int) Math.min(capacity, (rest - 8L * chunk) / TUPLE_BYTES));
+            long[] origins = new long[chunk];
+            for (int from = 0; from < n; from += chunk) {
+                int size = Math.min(chunk, n - from);
+                for (int i = 0; i < size; i++) origins[i] = file.key(from + i);
+                found += chunk(file, from, origins, size, buffer, streamBytes, tempDir, sink);
+            }
+        }
+        count = found;
+    }
+
+    // find the segments whose lowest point is in origins[0..size) = points from .. from+size-1
+    private static int chunk(PointFile file, int from, long[] origins, int size, Buffer buffer,
+                             int streamBytes, File tempDir, SegmentSink sink) throws IOException {
+        ArrayList<File> runs = new ArrayList<File>();
+        try {
+            buffer.clear();
+            for (int q = 0; q < file.n(); q++) {
+                long key = file.key(q);
+                int qx = x(key), qy = y(key);
+                for (int i = 0; i < size; i++) {
+                    if (from + i == q) continue;
+                    long dx = (long) qx - x(origins[i]);
+                    long dy = (long) qy - y(origins[i]);
+                    if (dx == 0 && dy == 0) throw new java.lang.IllegalArgumentException();
+                    if (buffer.full()) runs.add(buffer.spill(tempDir, streamBytes));
+                    buffer.add(i, dx, dy, key);
+                }
+            }
+
+            ArrayList<Cursor> cursors = new ArrayList<Cursor>();
+            if (runs.isEmpty()) {
+                buffer.fold();
+                cursors.add(buffer.cursor());
+                return (int) merge(cursors, origins, sink, null);
+            }
+            if (buffer.size() > 0) runs.add(buffer.spill(tempDir, streamBytes));
+
+            // merge MAX_RUNS runs at a time into longer runs until one merge takes them all
+            while (runs.size() > MAX_RUNS) {
+                File merged = File.createTempFile("collinear", ".run", tempDir);
+                runs.add(merged);   // from here on deleted with the others
+                List<File> group = runs.subList(0, MAX_RUNS);
+                long records;
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(merged), streamBytes))) {
+                    out.writeLong(0);   // the number of records, written at the end
+                    records = merge(cursors(group, streamBytes), origins, null, out);
+                }
+                try (RandomAccessFile header = new RandomAccessFile(merged, "rw")) {
+                    header.writeLong(records);
+                }
+                for (File run : group) run.delete();
+                group.clear();
+            }
+            return (int) merge(cursors(runs, streamBytes), origins, sink, null);
+        } finally {
+            for (File run : runs) run.delete();
+        }
+    }
+
+    // a cursor on every run; if one cannot be opened, the others are closed again
+    private static ArrayList<Cursor> cursors(List<File> runs, int streamBytes) throws IOException {
+        ArrayList<Cursor> cursors = new ArrayList<Cursor>(runs.size());
+        try {
+            for (File run : runs) cursors.add(new RunCursor(run, streamBytes));
+        } catch (IOException | RuntimeException e) {
+            for (Cursor c : cursors) c.close();
+            throw e;
+        }
+        return cursors;
+    }
+
+    // k-way merge of sorted, folded records; folds equal lines and reports the segments to
+    // sink, or writes the folded records to out if it is not null; returns how many
+    private static long merge(ArrayList<Cursor> cursors, long[] origins, SegmentSink sink,
+                              DataOutputStream out) throws IOException {
+        PriorityQueue<Cursor> heap = new PriorityQueue<Cursor>(Math.max(1, cursors.size()));
+        try {
+            for (Cursor c : cursors) if (c.advance()) heap.add(c);
+            long found = 0;
+            Cursor line = new Cursor();   // the line being folded
+            boolean open = false;
+            while (!heap.isEmpty()) {
+                Cursor c = heap.poll();
+                if (open && c.compareTo(line) == 0) {
+                    line.points += c.points;
+                    line.low = Math.min(line.low, c.low);
+                    line.high = Math.max(line.high, c.high);
+                } else {
+                    if (open) found += emit(line, origins, sink, out);
+                    line.copy(c);
+                    open = true;
+                }
+                if (c.advance()) heap.add(c);
+            }
+            if (open) found += emit(line, origins, sink, out);
+            return found;
+        } finally {
+            for (Cursor c : cursors) c.close();
+        }
+    }
+
+    private static int emit(Cursor line, long[] origins, SegmentSink sink, DataOutputStream out)
+            throws IOException {
+        if (out == null) return report(line, origins, sink);
+        line.write(out);
+        return 1;
+    }
+
+    // a line of 3 or more points besides its origin, found from its lowest point, is a segment
+    private static int report(Cursor line, long[] origins, SegmentSink sink) {
+        long origin = origins[line.origin];
+        if (line.points < 3 || line.low < origin) return 0;
+        sink.segment(point(origin), point(line.high));
+        return 1;
+    }
+
+    public int numberOfSegments() {
+        return count;
+    }
+
+    // a point as a long in natural order: y in the high half, x flipped to unsigned order below
+    private static long key(int x, int y) {
+        return ((long) y << 32) | ((x ^ 0x80000000) & 0xffffffffL);
+    }
+
+    private static int x(long key) {
+        return (int) key ^ 0x80000000;
+    }
+
+    private static int y(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static Point point(long key) {
+        return new Point(x(key), y(key));
+    }
+
+    /**
+     * Cursor: the current record of a sorted sequence of records, ordered by (origin, direction)
+     */
+    private static class Cursor implements Comparable<Cursor> {
+        int origin;         // index of the origin in its chunk
+        long dx, dy;        // reduced direction
+        int points;         // points on the line besides the origin
+        long low, high;     // keys of the lowest and the highest of them
+
+        // move to the next record; false at the end
+        boolean advance() throws IOException {
+            return false;
+        }
+
+        void close() throws IOException {
+        }
+
+        // the current record in the format of a run
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(origin);
+            out.writeInt(points);
+            out.writeLong(dx);
+            out.writeLong(dy);
+            out.writeLong(low);
+            out.writeLong(high);
+        }
+
+        void copy(Cursor that) {
+            origin = that.origin;
+            dx = that.dx;
+            dy = that.dy;
+            points = that.points;
+            low = that.low;
+            high = that.high;
+        }
+
+        public int compareTo(Cursor that) {
+            if (origin != that.origin) return origin < that.origin ? -1 : 1;
+            if (dx != that.dx) return dx < that.dx ? -1 : 1;
+            if (dy != that.dy) return dy < that.dy ? -1 : 1;
+            return 0;
+        }
+    }
+
+    /**
+     * RunCursor: reads the records of a run file
+     */
+    private static class RunCursor extends Cursor {
+        private final DataInputStream in;
+        private long remaining;
+
+        RunCursor(File run, int streamBytes) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), streamBytes));
+            try {
+                remaining = in.readLong();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (remaining == 0) return false;
+            remaining--;
+            origin = in.readInt();
+            points = in.readInt();
+            dx = in.readLong();
+            dy = in.readLong();
+            low = in.readLong();
+            high = in.readLong();
+            return true;
+        }
+
+        @Override
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Buffer: tuples of one chunk in primitive arrays, sorted and folded into records
+     * when full
+     */
+    private static class Buffer {
+        private final int[] origin, points, order;
+        private final long[] dx, dy, low, high;
+        private int size = 0;
+
+        Buffer(int capacity) {
+            origin = new int[capacity];
+            points = new int[capacity];
+            order = new int[capacity];
+            dx = new long[capacity];
+            dy = new long[capacity];
+            low = new long[capacity];
+            high = new long[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean full() {
+            return size == origin.length;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        // add point q at (dx, dy) from an origin, under its reduced direction
+        void add(int i, long dx, long dy, long q) {
+            if (dy < 0 || (dy == 0 && dx < 0)) {
+                dx = -dx;
+                dy = -dy;
+            }
+            long g = DirectionMap.gcd(Math.abs(dx), dy);
+            origin[size] = i;
+            this.dx[size] = dx / g;
+            this.dy[size] = dy / g;
+            points[size] = 1;
+            low[size] = q;
+            high[size] = q;
+            size++;
+        }
+
+        // sort by (origin, direction) and fold every line into its first record
+        void fold() {
+            for (int k = 0; k < size; k++) order[k] = k;
+            sort(0, size - 1);
+            int folded = 0;
+            for (int k = 0; k < size; k++) {
+                int r = order[k];
+                if (folded > 0 && compare(order[folded - 1], r) == 0) {
+                    int line = order[folded - 1];
+                    points[line] += points[r];
+                    low[line] = Math.min(low[line], low[r]);
+                    high[line] = Math.max(high[line], high[r]);
+                } else {
+                    order[folded++] = r;
+                }
+            }
+            size = folded;   // the records are now order[0..size)
+        }
+
+        // fold the buffer, write its records to a new run file and empty it; the caller
+        // deletes the run, or it is deleted here if it cannot be written
+        File spill(File tempDir, int streamBytes) throws IOException {
+            fold();
+            File run = File.createTempFile("collinear", ".run", tempDir);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(run), streamBytes))) {
+                out.writeLong(size);
+                for (int k = 0; k < size; k++) {
+                    int r = order[k];
+                    out.writeInt(origin[r]);
+                    out.writeInt(points[r]);
+                    out.writeLong(dx[r]);
+                    out.writeLong(dy[r]);
+                    out.writeLong(low[r]);
+                    out.writeLong(high[r]);
+                }
+            } catch (IOException | RuntimeException e) {
+                run.delete();
+                throw e;
+            }
+            size = 0;
+            return run;
+        }
+
+        // the folded records, in order
+        Cursor cursor() {
+            return new Cursor() {
+                private int k = 0;
+
+                @Override
+                boolean advance() {
+                    if (k == size) return false;
+                    int r = order[k++];
+                    origin = Buffer.this.origin[r];
+                    dx = Buffer.this.dx[r];
+                    dy = Buffer.this.dy[r];
+                    points = Buffer.this.points[r];
+                    low = Buffer.this.low[r];
+                    high = Buffer.this.high[r];
+                    return true;
+                }
+            };
+        }
+
+        private int compare(int a, int b) {
+            if (origin[a] != origin[b]) return origin[a] < origin[b] ? -1 : 1;
+            if (dx[a] != dx[b]) return dx[a] < dx[b] ? -1 : 1;
+            if (dy[a] != dy[b]) return dy[a] < dy[b] ? -1 : 1;
+            return 0;
+        }
+
+        // 3-way quicksort of order[lo..hi]; lines of many points make many equal keys
+        private void sort(int lo, int hi) {
+            while (hi - lo > 16) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(order[mid], order[lo]) < 0) swap(mid, lo);
+                if (compare(order[hi], order[lo]) < 0) swap(hi, lo);
+                if (compare(order[hi], order[mid]) < 0) swap(hi, mid);
+                swap(lo, mid);   // median of three as the pivot
+                int pivot = order[lo];
+                int lt = lo, gt = hi, k = lo + 1;
+                while (k <= gt) {
+                    int c = compare(order[k], pivot);
+                    if (c < 0) swap(lt++, k++);
+                    else if (c > 0) swap(k, gt--);
+                    else k++;
+                }
+                // recurse into the smaller side, loop on the larger
+                if (lt - lo < hi - gt) {
+                    sort(lo, lt - 1);
+                    lo = gt + 1;
+                } else {
+                    sort(gt + 1, hi);
+                    hi = lt - 1;
+                }
+            }
+            for (int k = lo + 1; k <= hi; k++)
+                for (int j = k; j > lo && compare(order[j], order[j - 1]) < 0; j--)
+                    swap(j, j - 1);
+        }
+
+        private void swap(int a, int b) {
+            int t = order[a];
+            order[a] = order[b];
+            order[b] = t;
+        }
+    }
+
+    /**
+     * PointFile: a binary points file, mapped a window at a time
+     */
+    private static class PointFile implements AutoCloseable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final long length;
+        private final int n;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        PointFile(File points) throws IOException {
+            file = new RandomAccessFile(points, "r");
+            channel = file.getChannel();
+            length = channel.size();
+            if (length < 8) {
+                file.close();
+                throw new IOException(points + " is not a points file");
+            }
+            map(0);
+            int magic = window.getInt(0);
+            n = window.getInt(4);
+            if (magic != MAGIC || n < 0 || length < 8 + 8L * n) {
+                file.close();
+                throw new IOException(points + " is not a points file");
+            }
+        }
+
+        int n() {
+            return n;
+        }
+
+        // key of point q; reading q in order maps every window once
+        long key(int q) throws IOException {
+            long position = 8 + 8L * q;
+            if (position < windowStart || position + 8 > windowStart + window.limit()) map(position);
+            int at = (int) (position - windowStart);
+            return ExternalCollinearPoints.key(window.getInt(at), window.getInt(at + 4));
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                 Math.min(WINDOW, length - position));
+            window.order(ByteOrder.BIG_ENDIAN);
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();   // the mapping stays valid until it is collected
+        }
+    }
+
+    /**
+     * convert a text points file ("n" then "x y" pairs) to a binary points file
+     *
+     * @param text: points in the format of FastCollinearPoints.main
+     * @param points: binary points file to create or overwrite
+     * @return int value: number of points converted
+     * @throws IOException if a file cannot be read or written, or the text is malformed
+     */
+    public static int convert(File text, File points) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(text), 1 << 16);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(new FileOutputStream(points), 1 << 16))) {
+            long n = readInt(in);
+            if (n == Long.MIN_VALUE) throw new EOFException(text + " is empty");
+            if (n < 0) throw new IOException("negative number of points");
+            out.writeInt(MAGIC);
+            out.writeInt((int) n);
+            for (int k = 0; k < n; k++) {
+                long x = readInt(in);
+                long y = x == Long.MIN_VALUE ? x : readInt(in);
+                if (y == Long.MIN_VALUE) throw new EOFException(text + " ends after " + k + " points");
+                out.writeInt((int) x);
+                out.writeInt((int) y);
+            }
+            return (int) n;
+        }
+    }
+
+    // next whitespace-separated integer, Long.MIN_VALUE at the end of the input
+    private static long readInt(InputStream in) throws IOException {
+        int c = in.read();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') c = in.read();
+        if (c < 0) return Long.MIN_VALUE;
+        boolean negative = c == '-';
+        if (negative) c = in.read();
+        if (c < '0' || c > '9') throw new IOException("not an integer");
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = 10 * value + (c - '0');
+            if (value > 1L << 31) throw new IOException("integer out of range");
+            c = in.read();
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) throw new IOException("integer out of range");
+        return value;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File input = new File(args[0]);
+        if (args.length > 1 && !args[1].matches("\\d+")) {
+            int n = convert(input, new File(args[1]));
+            StdOut.println(n + " points written to " + args[1]);
+            return;
+        }
+        long memory = (args.length > 1 ? Long.parseLong(args[1]) : 256) << 20;
+        File tempDir = args.length > 2 ? new File(args[2]) : null;
+
+        // text input is converted to a temporary points file first
+        File points = input;
+        if (args[0].endsWith(".txt")) {
+            points = File.createTempFile("collinear", ".bin", tempDir);
+            points.deleteOnExit();
+            convert(input, points);
+        }
+        ExternalCollinearPoints collinear = new ExternalCollinearPoints(points, memory, tempDir,
+                new SegmentSink() {
+                    public void segment(Point p, Point q) {
+                        StdOut.println(new LineSegment(p, q));
+                    }
+                });
+        StdOut.println(collinear.numberOfSegments() + " segments");
+    }
+}
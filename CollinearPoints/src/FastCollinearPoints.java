@@ -2,30 +2,36 @@
 /*****************************************************************************
  *  Author:         Yan Xu
  *  Written:        9/14/2016
- *  Last updated:   9/14/2016
+ *  Last updated:   10/17/2026
  *
  *  Compilation:    javac FastCollinearPoints.java;
- *  Execution:      java FastCollinearPoints;
+ *  Execution:      java FastCollinearPoints input.txt [threads];
  *  Dependency:     Point.java
+ *                  SegmentBuffer.java
+ *                  SegmentSink.java
  *                  java.util.Arrays
- *                  java.util.LinkedList
+ *                  java.util.concurrent.ForkJoinPool
  *
  *  FastCollinearPoints is a fast method to find every(maximal) line segment that
- *  connects a subset of 4 or more of the points.
+ *  connects a subset of 4 or more of the points. For every origin the slopes to
+ *  the other points are computed once into primitive sort keys and radix sorted
+ *  (see OriginScan), so no object is allocated per origin but the segments
+ *  found. With more than one thread the origins are spread over a fork-join
+ *  pool; the result is the same. Segments are kept as point indices in a
+ *  SegmentBuffer, or streamed to a SegmentSink, and only become LineSegments
+ *  when segments() is called.
  *****************************************************************************/
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdDraw;
 import edu.princeton.cs.algs4.StdOut;
 
 public class FastCollinearPoints {
-    private final LineSegment[] Segment;
+    private final SegmentBuffer Segment;   // null if the segments went to a sink
     private final int count;
-    private double[][] Slope;
-    private LineSegment[] Segment_temp;
-    private int count_temp = 0;
+    private static final int MIN_ORIGINS = 16;   // fewest origins worth a task of their own
 
     /**
      * constructor: finds all lines segments containing 4(or more)points
@@ -34,12 +40,50 @@ public class FastCollinearPoints {
      * @throws NullPointerException     either the argument to the constructor is null or if
      *                                  any point in the array is null;
      * @throws IllegalArgumentException if the argument to the constructor contains a repeated point.
-     * ???? How to control the total length of the LineSegment? Resize?
-     *
      */
     public FastCollinearPoints(Point[] points) {
+        this(points, 1);
+    }
+
+    /**
+     * constructor: finds all lines segments containing 4(or more)points, spreading
+     * the origins over a fork-join pool
+     *
+     * every origin is independent: it sorts its own slopes and only reports the segments
+     * it is the lowest point of, so ranges of origins run as separate tasks, each with
+     * its own segment buffer. Buffers are joined in origin order, so the segments come
+     * out in the same order for any number of threads.
+     *
+     * @param points: all the points in the array
+     * @param threads: number of worker threads; 1 runs everything on the calling thread
+     * @throws NullPointerException     either the argument to the constructor is null or if
+     *                                  any point in the array is null;
+     * @throws IllegalArgumentException if the argument to the constructor contains a repeated point,
+     *                                  or if(threads < 1)
+     */
+    public FastCollinearPoints(Point[] points, int threads) {
+        this(points, threads, null);
+    }
+
+    /**
+     * constructor: finds all lines segments containing 4(or more)points and streams
+     * them to a sink instead of keeping them
+     *
+     * the sink is only called on the calling thread: after every origin on a single
+     * thread, and in origin order once the pool is done with more threads. The
+     * segments reach the sink in the order segments() would return them.
+     *
+     * @param points: all the points in the array
+     * @param threads: number of worker threads; 1 runs everything on the calling thread
+     * @param sink: receives every segment; null to keep them for segments()
+     * @throws NullPointerException     either the argument to the constructor is null or if
+     *                                  any point in the array is null;
+     * @throws IllegalArgumentException if the argument to the constructor contains a repeated point,
+     *                                  or if(threads < 1)
+     */
+    public FastCollinearPoints(Point[] points, int threads, SegmentSink sink) {
+        if (threads < 1) throw new java.lang.IllegalArgumentException("threads should be at least 1");
         int length = points.length;
-        Segment_temp = new LineSegment[50 * length];
 
         // sort the points array;
         Arrays.sort(points);
@@ -47,69 +91,166 @@ public class FastCollinearPoints {
             if(points[n].slopeTo(points[n + 1]) == Double.NEGATIVE_INFINITY)
                 throw new java.lang.IllegalArgumentException();
         }
-        // loop through each naturally sorted point
-        for (Point naturalPoint : points) {
-            // clone natural order, then sort to slope order based on slope to first point
-            Point[] slopeOrderPoints = points.clone();
-            Arrays.sort(slopeOrderPoints, naturalPoint.slopeOrder());
-            // create new segment
-            LinkedList<Point> segment = new LinkedList<Point>();
-            // add point i as origin
-            segment.add(naturalPoint);
-            // index 0 in slope order sorted is always the origin point (slope negative infinity)
-            // this loop compares i to j and i to j+1. j only needs to loop through N-2
-            for (int j = 1; j < points.length - 1; j++) {
-
-                Point slopePoint = slopeOrderPoints[j];
-                Point nextSlopePoint = slopeOrderPoints[j + 1];
-
-                double slope = naturalPoint.slopeTo(slopePoint);
-                double nextSlope = naturalPoint.slopeTo(nextSlopePoint);
-
-                if (slope == nextSlope) {
-                    if (segment.peekLast() != slopePoint) {
-                        segment.add(slopePoint);
-                    }
-                    segment.add(nextSlopePoint);
-                }
+        // segments refer to the points by index: keep a copy the caller cannot change
+        points = points.clone();
 
-                // clear segment if no match (end of segment or loop)
-                if (slope != nextSlope || j == points.length - 2) {
-                    // first output segment if it is large enough
-                    if (segment.size() > 3) {
-                        outputSegment(segment);
-                    }
-                    segment.clear();
-                    segment.add(naturalPoint);
+        SegmentBuffer found;
+        int total = 0;
+        if (threads == 1 || length < 2 * MIN_ORIGINS) {
+            found = new SegmentBuffer(points);
+            OriginScan scan = new OriginScan(points);
+            for (int origin = 0; origin < length; origin++) {
+                scan.collect(origin, found);
+                if (sink != null) {
+                    found.emit(sink);
+                    total += found.size();
+                    found.clear();
                 }
             }
+        } else {
+            int grain = Math.max(MIN_ORIGINS, length / (8 * threads));
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                found = pool.invoke(new Origins(points, 0, length, grain));
+            } finally {
+                pool.shutdown();
+            }
+            if (sink != null) {
+                found.emit(sink);
+                total = found.size();
+            }
+        }
+        Segment = sink == null ? found : null;
+        count = sink == null ? found.size() : total;
+    }
+
+    // the origins [from, to), split in halves until a range has at most grain origins
+    private static class Origins extends RecursiveTask<SegmentBuffer> {
+        private static final long serialVersionUID = 1L;
+        private final Point[] points;
+        private final int from, to, grain;
+
+        Origins(Point[] points, int from, int to, int grain) {
+            this.points = points;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
         }
-        // resize the Segment array;
-        Segment = new LineSegment[count_temp];
-        for(int k = 0; k < count_temp; k++){
-            Segment[k] = Segment_temp[k];
+
+        @Override
+        protected SegmentBuffer compute() {
+            if (to - from <= grain) {
+                SegmentBuffer found = new SegmentBuffer(points);
+                OriginScan scan = new OriginScan(points);
+                for (int origin = from; origin < to; origin++)
+                    scan.collect(origin, found);
+                return found;
+            }
+            int mid = (from + to) >>> 1;
+            Origins low = new Origins(points, from, mid, grain);
+            low.fork();
+            SegmentBuffer found = new Origins(points, mid, to, grain).compute();
+            SegmentBuffer lowFound = low.join();
+            lowFound.addAll(found);
+            return lowFound;
         }
-        count = count_temp;
     }
 
-    private void outputSegment(LinkedList<Point> segment) {
-        // to remove sub-segments, we rely on the following logic:
-        // the outer loop's array is sorted via natural order
-        // the inner loop is sorted in slope order according
-        // to the current number in the outer loop
-        // a discovered segment should always start at
-        // its naturally lowest point
-        // in the case of a sub-segment, the outer loop will
-        // start the segment at somewhere other than its lowest
-        // in this case, we can discover this by comparing
-        // whether the first point of the segment is in fact the lowest
-
-        Point first = segment.removeFirst();
-        Point second = segment.removeFirst();
-        Point last = segment.removeLast();
-        if (first.compareTo(second) < 0) {
-            Segment_temp[count_temp] = new LineSegment(first,last);
-            count_temp++;
+    /**
+     * OriginScan: finds the segments of one origin at a time over coordinate arrays
+     *
+     * the slope from the origin to every other point is computed once, exactly as
+     * Point.slopeTo does, and turned into a long whose unsigned order is the order of
+     * the slopes. The (key, point) pairs are sorted by an LSD radix sort, 8 bits a
+     * pass, skipping the passes in which every key has the same byte. The sort is
+     * stable and the points go in natural order, so equal slopes stay in natural
+     * order, just as after the stable Arrays.sort of the natural-order clone, and the
+     * segments come out identical. All arrays are allocated once per scan and reused
+     * for every origin; a scan is not thread-safe, use one per thread.
+     */
+    private static class OriginScan {
+        private final Point[] points;   // all points in natural order
+        private final int[] xs, ys;     // their coordinates
+        private final long[] key, keyTemp;
+        private final int[] index, indexTemp;
+        private final int[] counts = new int[8 * 256];
+
+        OriginScan(Point[] points) {
+            this.points = points;
+            int length = points.length;
+            xs = new int[length];
+            ys = new int[length];
+            for (int n = 0; n < length; n++) {
+                xs[n] = points[n].x();
+                ys[n] = points[n].y();
+            }
+            key = new long[length];
+            keyTemp = new long[length];
+            index = new int[length];
+            indexTemp = new int[length];
+        }
+
+        // add the segments whose lowest point is points[origin]
+        void collect(int origin, SegmentBuffer found) {
+            int x0 = xs[origin], y0 = ys[origin];
+            int m = 0;
+            for (int j = 0; j < xs.length; j++) {
+                if (j == origin) continue;
+                double slope;
+                if (xs[j] == x0) slope = Double.POSITIVE_INFINITY;
+                else if (ys[j] == y0) slope = +0.0;
+                else slope = (double)(ys[j] - y0)/(xs[j] - x0);
+                long bits = Double.doubleToRawLongBits(slope);
+                key[m] = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+                index[m] = j;
+                m++;
+            }
+            sort(m);
+
+            // a run of 3 or more equal slopes is a segment; as in the clone-and-sort
+            // scan, keep it only if the origin comes before the run's first point,
+            // which is its lowest, so sub-segments are never reported
+            int start = 0;
+            for (int k = 1; k <= m; k++) {
+                if (k < m && key[k] == key[start]) continue;
+                if (k - start >= 3 && origin < index[start])
+                    found.add(origin, index[k - 1]);
+                start = k;
+            }
+        }
+
+        // stable LSD radix sort of key[0..m) (unsigned), carrying index[0..m) along
+        private void sort(int m) {
+            Arrays.fill(counts, 0);
+            for (int k = 0; k < m; k++) {
+                long v = key[k];
+                for (int d = 0; d < 8; d++)
+                    counts[(d << 8) + (int) ((v >>> (d << 3)) & 0xff)]++;
+            }
+            long[] from = key, to = keyTemp;
+            int[] fromIndex = index, toIndex = indexTemp;
+            for (int d = 0; d < 8; d++) {
+                int base = d << 8;
+                int shift = d << 3;
+                if (m == 0 || counts[base + (int) ((from[0] >>> shift) & 0xff)] == m) continue;
+                int sum = 0;
+                for (int b = base; b < base + 256; b++) {
+                    int c = counts[b];
+                    counts[b] = sum;
+                    sum += c;
+                }
+                for (int k = 0; k < m; k++) {
+                    int slot = counts[base + (int) ((from[k] >>> shift) & 0xff)]++;
+                    to[slot] = from[k];
+                    toIndex[slot] = fromIndex[k];
+                }
+                long[] t = from; from = to; to = t;
+                int[] ti = fromIndex; fromIndex = toIndex; toIndex = ti;
+            }
+            if (from != key) {
+                System.arraycopy(from, 0, key, 0, m);
+                System.arraycopy(fromIndex, 0, index, 0, m);
+            }
         }
     }
 
@@ -117,8 +258,16 @@ public class FastCollinearPoints {
         return count;
     }
 
+    /**
+     * the segments found, made on every call
+     *
+     * @return LineSegment[]: a new array of the segments
+     * @throws IllegalStateException if the segments were streamed to a sink
+     */
     public LineSegment[] segments() {
-        return Segment;
+        if (Segment == null)
+            throw new java.lang.IllegalStateException("segments were streamed to a sink");
+        return Segment.toSegments();
     }
 
     public static void main(String[] args) {
@@ -143,7 +292,8 @@ public class FastCollinearPoints {
         StdDraw.show();
 
         // print and draw the line segments
-        FastCollinearPoints collinear = new FastCollinearPoints(points);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        FastCollinearPoints collinear = new FastCollinearPoints(points, threads);
         for (LineSegment segment : collinear.segments()) {
             StdOut.println(segment);
             segment.draw();
@@ -0,0 +1,136 @@
+/*****************************************************************************
+ *  Compilation:    javac HashCollinearPoints.java;
+ *  Execution:      java HashCollinearPoints input.txt;
+ *  Dependency:     Point.java
+ *                  DirectionMap.java
+ *                  SegmentBuffer.java
+ *                  SegmentSink.java
+ *
+ *  HashCollinearPoints finds the same maximal line segments of 4 or more
+ *  points as FastCollinearPoints without sorting anything per origin. The
+ *  points are sorted once in natural order and copied to coordinate arrays;
+ *  then, for every origin, every other point is added to a DirectionMap under
+ *  its exact reduced direction from the origin. A direction with 3 or more
+ *  points is a line of 4 or more points, and it is reported only from its
+ *  lowest point, i.e. when the first point added with that direction comes
+ *  after the origin. That is expected O(n) per origin and O(n^2) in all,
+ *  with no allocation per origin. Segments are kept as point indices in a
+ *  SegmentBuffer, or streamed to a SegmentSink as they are found.
+ *****************************************************************************/
+import java.util.Arrays;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdDraw;
+import edu.princeton.cs.algs4.StdOut;
+
+public class HashCollinearPoints {
+    private final SegmentBuffer Segment;   // null if the segments went to a sink
+    private final int count;
+
+    /**
+     * constructor: finds all lines segments containing 4(or more)points
+     *
+     * @param points: all the points in the array; the array is not changed
+     * @throws NullPointerException     either the argument to the constructor is null or if
+     *                                  any point in the array is null;
+     * @throws IllegalArgumentException if the argument to the constructor contains a repeated point.
+     */
+    public HashCollinearPoints(Point[] points) {
+        this(points, null);
+    }
+
+    /**
+     * constructor: finds all lines segments containing 4(or more)points and streams
+     * them to a sink, as they are found, instead of keeping them
+     *
+     * @param points: all the points in the array; the array is not changed
+     * @param sink: receives every segment; null to keep them for segments()
+     * @throws NullPointerException     either the argument to the constructor is null or if
+     *                                  any point in the array is null;
+     * @throws IllegalArgumentException if the argument to the constructor contains a repeated point.
+     */
+    public HashCollinearPoints(Point[] points, SegmentSink sink) {
+        Point[] sorted = points.clone();
+        for (Point p : sorted)
+            if (p == null) throw new java.lang.NullPointerException();
+        Arrays.sort(sorted);
+        int length = sorted.length;
+        for (int n = 0; n < length - 1; n++) {
+            if (sorted[n].compareTo(sorted[n + 1]) == 0)
+                throw new java.lang.IllegalArgumentException();
+        }
+
+        int[] x = new int[length];
+        int[] y = new int[length];
+        for (int n = 0; n < length; n++) {
+            x[n] = sorted[n].x();
+            y[n] = sorted[n].y();
+        }
+
+        SegmentBuffer found = new SegmentBuffer(sorted);
+        int total = 0;
+        DirectionMap directions = new DirectionMap(Math.max(length - 1, 1));
+        for (int i = 0; i < length; i++) {
+            directions.clear();
+            for (int j = 0; j < length; j++) {
+                if (j != i) directions.add((long) x[j] - x[i], (long) y[j] - y[i], j);
+            }
+            // points were added in natural order: first() is the lowest on the line
+            for (int k = 0; k < directions.size(); k++) {
+                int slot = directions.slot(k);
+                if (directions.count(slot) >= 3 && directions.first(slot) > i) {
+                    if (sink != null) sink.segment(sorted[i], sorted[directions.last(slot)]);
+                    else found.add(i, directions.last(slot));
+                    total++;
+                }
+            }
+        }
+        Segment = sink == null ? found : null;
+        count = total;
+    }
+
+    public int numberOfSegments() {
+        return count;
+    }
+
+    /**
+     * the segments found, made on every call
+     *
+     * @return LineSegment[]: a new array of the segments
+     * @throws IllegalStateException if the segments were streamed to a sink
+     */
+    public LineSegment[] segments() {
+        if (Segment == null)
+            throw new java.lang.IllegalStateException("segments were streamed to a sink");
+        return Segment.toSegments();
+    }
+
+    public static void main(String[] args) {
+
+        // read the n points from a file
+        In in = new In(args[0]);
+        int n = in.readInt();
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            int x = in.readInt();
+            int y = in.readInt();
+            points[i] = new Point(x, y);
+        }
+
+        // draw the points
+        StdDraw.enableDoubleBuffering();
+        StdDraw.setXscale(0, 32768);
+        StdDraw.setYscale(0, 32768);
+        for (Point p : points) {
+            p.draw();
+        }
+        StdDraw.show();
+
+        // print and draw the line segments
+        HashCollinearPoints collinear = new HashCollinearPoints(points);
+        for (LineSegment segment : collinear.segments()) {
+            StdOut.println(segment);
+            segment.draw();
+        }
+        StdDraw.show();
+    }
+}
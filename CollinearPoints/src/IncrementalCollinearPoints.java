@@ -0,0 +1,239 @@
+/*****************************************************************************
+ *  Compilation:    javac IncrementalCollinearPoints.java;
+ *  Execution:      java IncrementalCollinearPoints input.txt [k];
+ *  Dependency:     Point.java
+ *                  DirectionMap.java
+ *
+ *  IncrementalCollinearPoints keeps the maximal line segments of k or more
+ *  points (4 by default) of a set that only grows. Adding a point q compares
+ *  q with the points already there and nothing else: they go into a
+ *  DirectionMap under their reduced direction from q, and a direction with
+ *  c points is the line through q that held those c points before. If
+ *  c + 1 >= k the line is a segment now: a new one if c + 1 == k, otherwise
+ *  the segment it already was, grown by q (its ends move if q lies beyond
+ *  them). A maximal segment holds every point of its line, so two segments
+ *  never share a line and nothing ever has to be merged.
+ *
+ *  Segments live in primitive arrays, one record per segment, found through
+ *  an open-addressing table keyed by (lowest point, reduced direction), at
+ *  most half full; a record is rehashed when q becomes its lowest point.
+ *  Finding or moving a record is expected O(1) however many lines start at
+ *  the same point, so an insertion costs expected O(n) for n points so far,
+ *  and segments() is the current set at any time.
+ *****************************************************************************/
+import java.util.Arrays;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+public class IncrementalCollinearPoints {
+    private final int k;                 // fewest points of a segment
+    private int n = 0;                   // number of points
+    private Point[] points = new Point[16];
+    private int[] xs = new int[16], ys = new int[16];
+    private DirectionMap directions = new DirectionMap(16);
+    private int[] low = new int[directions.slots()];   // lowest point of a direction from q
+    private int[] high = new int[directions.slots()];  // highest point of a direction from q
+
+    private int segments = 0;            // number of records
+    private int[] segmentLow = new int[16], segmentHigh = new int[16], segmentCount = new int[16];
+    private long[] segmentDx = new long[16], segmentDy = new long[16];
+    private int[] table = new int[32];   // record + 1 by (lowest point, direction), 0 if empty
+    private int tableShift = 64 - 5;     // 64 - lg(table.length)
+
+    /**
+     * constructor: an empty set, reporting segments of 4(or more)points
+     */
+    public IncrementalCollinearPoints() {
+        this(4);
+    }
+
+    /**
+     * constructor: an empty set, reporting segments of k(or more)points
+     *
+     * @param k: fewest points of a segment
+     * @throws IllegalArgumentException if(k < 3)
+     */
+    public IncrementalCollinearPoints(int k) {
+        if (k < 3) throw new java.lang.IllegalArgumentException("k should be at least 3");
+        this.k = k;
+    }
+
+    /**
+     * add a point
+     *
+     * @param q: the new point
+     * @return LineSegment[]: the segments that q created or grew, as they are now
+     * @throws NullPointerException     if q is null
+     * @throws IllegalArgumentException if q is already in the set; the set is not changed
+     */
+    public LineSegment[] add(Point q) {
+        if (q == null) throw new java.lang.NullPointerException();
+        if (n == points.length) grow();
+        int qx = q.x(), qy = q.y();
+
+        // group the points so far by direction from q; a repeat of q throws here
+        directions.clear();
+        for (int j = 0; j < n; j++) {
+            int slot = directions.add((long) xs[j] - qx, (long) ys[j] - qy, j);
+            if (directions.count(slot) == 1) {
+                low[slot] = j;
+                high[slot] = j;
+            } else if (points[j].compareTo(points[low[slot]]) < 0) {
+                low[slot] = j;
+            } else if (points[j].compareTo(points[high[slot]]) > 0) {
+                high[slot] = j;
+            }
+        }
+
+        int p = n++;
+        points[p] = q;
+        xs[p] = qx;
+        ys[p] = qy;
+
+        int changes = 0;
+        int[] changed = new int[4];
+        for (int d = 0; d < directions.size(); d++) {
+            int slot = directions.slot(d);
+            int count = directions.count(slot);
+            if (count + 1 < k) continue;
+            int segment = count + 1 == k ? create(slot) : find(low[slot], slot);
+            segmentCount[segment] = count + 1;
+            if (q.compareTo(points[segmentLow[segment]]) < 0) move(segment, p);
+            if (q.compareTo(points[segmentHigh[segment]]) > 0) segmentHigh[segment] = p;
+            if (changes == changed.length) changed = Arrays.copyOf(changed, 2 * changes);
+            changed[changes++] = segment;
+        }
+        LineSegment[] result = new LineSegment[changes];
+        for (int c = 0; c < changes; c++) result[c] = segment(changed[c]);
+        return result;
+    }
+
+    // a new record for the line of a direction from q, spanning its old points
+    private int create(int slot) {
+        if (segments == segmentLow.length) {
+            int capacity = 2 * segments;
+            segmentLow = Arrays.copyOf(segmentLow, capacity);
+            segmentHigh = Arrays.copyOf(segmentHigh, capacity);
+            segmentCount = Arrays.copyOf(segmentCount, capacity);
+            segmentDx = Arrays.copyOf(segmentDx, capacity);
+            segmentDy = Arrays.copyOf(segmentDy, capacity);
+        }
+        int segment = segments++;
+        segmentLow[segment] = low[slot];
+        segmentHigh[segment] = high[slot];
+        segmentDx[segment] = directions.dx(slot);
+        segmentDy[segment] = directions.dy(slot);
+        if (2 * segments > table.length) rehash();
+        insert(segment);
+        return segment;
+    }
+
+    // the record of the line through point p in the direction of a slot
+    private int find(int p, int slot) {
+        long dx = directions.dx(slot), dy = directions.dy(slot);
+        for (int t = hash(p, dx, dy); ; t = (t + 1) & (table.length - 1)) {
+            int s = table[t] - 1;
+            if (segmentLow[s] == p && segmentDx[s] == dx && segmentDy[s] == dy) return s;
+        }
+    }
+
+    // make point p the lowest point of a record
+    private void move(int segment, int p) {
+        remove(segment);
+        segmentLow[segment] = p;
+        insert(segment);
+    }
+
+    private int hash(int low, long dx, long dy) {
+        return (int) ((((dx * 0x9E3779B97F4A7C15L) ^ dy) * 0xC2B2AE3D27D4EB4FL ^ low)
+                * 0x9E3779B97F4A7C15L >>> tableShift);
+    }
+
+    private void insert(int segment) {
+        int t = hash(segmentLow[segment], segmentDx[segment], segmentDy[segment]);
+        while (table[t] != 0) t = (t + 1) & (table.length - 1);
+        table[t] = segment + 1;
+    }
+
+    // take a record out of the table, shifting back the records probed past it
+    private void remove(int segment) {
+        int mask = table.length - 1;
+        int t = hash(segmentLow[segment], segmentDx[segment], segmentDy[segment]);
+        while (table[t] != segment + 1) t = (t + 1) & mask;
+        table[t] = 0;
+        for (int u = (t + 1) & mask; table[u] != 0; u = (u + 1) & mask) {
+            int s = table[u] - 1;
+            int home = hash(segmentLow[s], segmentDx[s], segmentDy[s]);
+            // the record at u may fill the hole at t if t is between its home and u
+            if (((u - home) & mask) >= ((u - t) & mask)) {
+                table[t] = table[u];
+                table[u] = 0;
+                t = u;
+            }
+        }
+    }
+
+    // double the table and insert every record again
+    private void rehash() {
+        table = new int[2 * table.length];
+        tableShift--;
+        for (int s = 0; s < segments - 1; s++) insert(s);
+    }
+
+    // double the point arrays and the direction map
+    private void grow() {
+        int capacity = 2 * points.length;
+        points = Arrays.copyOf(points, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        directions = new DirectionMap(capacity);
+        low = new int[directions.slots()];
+        high = new int[directions.slots()];
+    }
+
+    private LineSegment segment(int segment) {
+        return new LineSegment(points[segmentLow[segment]], points[segmentHigh[segment]]);
+    }
+
+    /**
+     * number of points added so far
+     */
+    public int numberOfPoints() {
+        return n;
+    }
+
+    public int numberOfSegments() {
+        return segments;
+    }
+
+    /**
+     * the current segments
+     *
+     * @return LineSegment[]: a new array of the segments, in the order they first appeared
+     */
+    public LineSegment[] segments() {
+        LineSegment[] result = new LineSegment[segments];
+        for (int s = 0; s < segments; s++) result[s] = segment(s);
+        return result;
+    }
+
+    public static void main(String[] args) {
+
+        // read the n points from a file
+        In in = new In(args[0]);
+        int n = in.readInt();
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        // add the points one at a time and print every segment that changes
+        IncrementalCollinearPoints collinear = new IncrementalCollinearPoints(k);
+        for (int i = 0; i < n; i++) {
+            int x = in.readInt();
+            int y = in.readInt();
+            Point p = new Point(x, y);
+            for (LineSegment segment : collinear.add(p)) {
+                StdOut.println(p + ": " + segment);
+            }
+        }
+        StdOut.println(collinear.numberOfSegments() + " segments");
+    }
+}
@@ -0,0 +1,248 @@
+/*****************************************************************************
+ *  Compilation:    javac LineIndex.java;
+ *  Execution:      java LineIndex input.txt k;
+ *  Dependency:     Point.java
+ *                  DirectionMap.java
+ *
+ *  LineIndex finds every maximal line through 3 or more of the points once,
+ *  and then answers questions about them without looking at the points again:
+ *  the segments of the lines with k or more points for any k >= 3, the lines
+ *  through a point, and the most populated lines.
+ *
+ *  It is built like HashCollinearPoints: for every origin the other points go
+ *  into a DirectionMap, and a direction with 2 or more points whose lowest
+ *  point comes after the origin is a line found from its lowest point. Every
+ *  line is numbered in the order it is found (by lowest point, then by its
+ *  second point) and its points are stored in natural order in one shared
+ *  array, line after line. A second array lists the lines through every
+ *  point, and the lines are also kept sorted by decreasing number of points,
+ *  so segments(k) and top(n) read a prefix of it.
+ *
+ *  Building costs expected O(n) per origin; the index takes O(n + L + M)
+ *  ints for L lines holding M points in all.
+ *****************************************************************************/
+import java.util.Arrays;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+public class LineIndex {
+    private final Point[] points;      // all points in natural order
+    private int lines = 0;             // number of lines
+    private int[] lineStart = new int[16];  // points of line l: members[lineStart[l] .. lineStart[l+1])
+    private int[] members = new int[64];
+    private final int[] byCount;       // lines by decreasing number of points, then by number
+    private final int[] pointStart;    // lines through point p: pointLines[pointStart[p] .. pointStart[p+1])
+    private final int[] pointLines;
+
+    /**
+     * constructor: finds every maximal line containing 3(or more)points
+     *
+     * @param points: all the points in the array; the array is not changed
+     * @throws NullPointerException     either the argument to the constructor is null or if
+     *                                  any point in the array is null;
+     * @throws IllegalArgumentException if the argument to the constructor contains a repeated point.
+     */
+    public LineIndex(Point[] points) {
+        Point[] sorted = points.clone();
+        for (Point p : sorted)
+            if (p == null) throw new java.lang.NullPointerException();
+        Arrays.sort(sorted);
+        int length = sorted.length;
+        for (int n = 0; n < length - 1; n++) {
+            if (sorted[n].compareTo(sorted[n + 1]) == 0)
+                throw new java.lang.IllegalArgumentException();
+        }
+        this.points = sorted;
+
+        int[] x = new int[length];
+        int[] y = new int[length];
+        for (int n = 0; n < length; n++) {
+            x[n] = sorted[n].x();
+            y[n] = sorted[n].y();
+        }
+
+        DirectionMap directions = new DirectionMap(Math.max(length - 1, 1));
+        int[] slotOf = new int[length];                    // slot of point j from the origin
+        int[] lineOf = new int[directions.slots()];        // line of a slot, -1 if none
+        int[] fill = new int[16];                          // next free member of a new line
+        int total = 0;                                     // members used so far
+        for (int i = 0; i < length; i++) {
+            directions.clear();
+            for (int j = 0; j < length; j++) {
+                if (j != i) slotOf[j] = directions.add((long) x[j] - x[i], (long) y[j] - y[i], j);
+            }
+            // a line starts at i if no point on it comes before i
+            int firstLine = lines;
+            for (int k = 0; k < directions.size(); k++) {
+                int slot = directions.slot(k);
+                int count = directions.count(slot);
+                if (count < 2 || directions.first(slot) < i) {
+                    lineOf[slot] = -1;
+                    continue;
+                }
+                if (lines + 1 >= lineStart.length) lineStart = Arrays.copyOf(lineStart, 2 * lineStart.length);
+                if (lines - firstLine >= fill.length) fill = Arrays.copyOf(fill, 2 * fill.length);
+                if (total + count + 1 > members.length)
+                    members = Arrays.copyOf(members, Math.max(2 * members.length, total + count + 1));
+                lineOf[slot] = lines;
+                lineStart[lines] = total;
+                members[total] = i;
+                fill[lines - firstLine] = total + 1;
+                total += count + 1;
+                lines++;
+            }
+            if (lines == firstLine) continue;
+            for (int j = i + 1; j < length; j++) {
+                int line = lineOf[slotOf[j]];
+                if (line >= 0) members[fill[line - firstLine]++] = j;
+            }
+        }
+        lineStart[lines] = total;
+
+        // lines by decreasing count: a counting sort, stable in the line number
+        int[] start = new int[length + 2];
+        for (int l = 0; l < lines; l++) start[length - count(l) + 1]++;
+        for (int c = 1; c < start.length; c++) start[c] += start[c - 1];
+        byCount = new int[lines];
+        for (int l = 0; l < lines; l++) byCount[start[length - count(l)]++] = l;
+
+        // lines through every point, in line order
+        pointStart = new int[length + 1];
+        for (int m = 0; m < total; m++) pointStart[members[m] + 1]++;
+        for (int p = 0; p < length; p++) pointStart[p + 1] += pointStart[p];
+        pointLines = new int[total];
+        int[] next = Arrays.copyOf(pointStart, length);
+        for (int l = 0; l < lines; l++)
+            for (int m = lineStart[l]; m < lineStart[l + 1]; m++)
+                pointLines[next[members[m]]++] = l;
+    }
+
+    /**
+     * number of maximal lines with 3 or more points
+     * @return int value: lines are numbered 0 .. numberOfLines()-1
+     */
+    public int numberOfLines() {
+        return lines;
+    }
+
+    /**
+     * number of points on a line
+     *
+     * @throws IndexOutOfBoundsException if line is not in [0, numberOfLines())
+     */
+    public int count(int line) {
+        checkLine(line);
+        return lineStart[line + 1] - lineStart[line];
+    }
+
+    /**
+     * the points of a line
+     *
+     * @return Point[]: a new array of the points on the line, in natural order
+     * @throws IndexOutOfBoundsException if line is not in [0, numberOfLines())
+     */
+    public Point[] points(int line) {
+        checkLine(line);
+        Point[] on = new Point[count(line)];
+        for (int m = 0; m < on.length; m++) on[m] = points[members[lineStart[line] + m]];
+        return on;
+    }
+
+    /**
+     * the segment from the lowest to the highest point of a line
+     *
+     * @throws IndexOutOfBoundsException if line is not in [0, numberOfLines())
+     */
+    public LineSegment segment(int line) {
+        checkLine(line);
+        return new LineSegment(points[members[lineStart[line]]], points[members[lineStart[line + 1] - 1]]);
+    }
+
+    /**
+     * number of maximal lines with k or more points
+     *
+     * @throws IllegalArgumentException if(k < 3)
+     */
+    public int numberOfSegments(int k) {
+        if (k < 3) throw new java.lang.IllegalArgumentException("k should be at least 3");
+        // byCount is sorted by decreasing count: find the first line with fewer than k
+        int lo = 0, hi = lines;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (count(byCount[mid]) >= k) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * segments of the maximal lines with k or more points; k = 4 gives the segments
+     * of FastCollinearPoints
+     *
+     * @return LineSegment[]: a new array of the segments, in line order
+     * @throws IllegalArgumentException if(k < 3)
+     */
+    public LineSegment[] segments(int k) {
+        int[] chosen = Arrays.copyOf(byCount, numberOfSegments(k));
+        Arrays.sort(chosen);
+        LineSegment[] segments = new LineSegment[chosen.length];
+        for (int s = 0; s < chosen.length; s++) segments[s] = segment(chosen[s]);
+        return segments;
+    }
+
+    /**
+     * lines through a point
+     *
+     * @param p: one of the points
+     * @return int[]: a new array of the lines with 3 or more points through p, in line order
+     * @throws IllegalArgumentException if p is not one of the points
+     */
+    public int[] linesThrough(Point p) {
+        int index = Arrays.binarySearch(points, p);
+        if (index < 0) throw new java.lang.IllegalArgumentException(p + " is not one of the points");
+        return Arrays.copyOfRange(pointLines, pointStart[index], pointStart[index + 1]);
+    }
+
+    /**
+     * the most populated lines
+     *
+     * @param n: number of lines wanted
+     * @return int[]: a new array of the min(n, numberOfLines()) lines with the most points,
+     *         by decreasing count, ties in line order
+     * @throws IllegalArgumentException if(n < 0)
+     */
+    public int[] top(int n) {
+        if (n < 0) throw new java.lang.IllegalArgumentException("n should not be negative");
+        return Arrays.copyOf(byCount, Math.min(n, lines));
+    }
+
+    private void checkLine(int line) {
+        if (line < 0 || line >= lines)
+            throw new IndexOutOfBoundsException("line out of bounds");
+    }
+
+    public static void main(String[] args) {
+
+        // read the n points from a file
+        In in = new In(args[0]);
+        int n = in.readInt();
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            int x = in.readInt();
+            int y = in.readInt();
+            points[i] = new Point(x, y);
+        }
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        LineIndex index = new LineIndex(points);
+        StdOut.println(index.numberOfLines() + " lines of 3 or more points");
+        StdOut.println(index.numberOfSegments(k) + " lines of " + k + " or more points:");
+        for (LineSegment segment : index.segments(k)) {
+            StdOut.println(segment);
+        }
+        StdOut.println("most populated lines:");
+        for (int line : index.top(5)) {
+            StdOut.println(index.count(line) + " points: " + index.segment(line));
+        }
+    }
+}
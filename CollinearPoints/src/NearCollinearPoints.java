@@ -0,0 +1,289 @@
+/*****************************************************************************
+ *  Compilation:    javac NearCollinearPoints.java;
+ *  Execution:      java NearCollinearPoints input.txt epsilon [k];
+ *  Dependency:     Point.java
+ *                  DirectionMap.java
+ *                  LineSegment.java
+ *                  SegmentBuffer.java
+ *                  SegmentSink.java
+ *
+ *  NearCollinearPoints finds chains of k or more points (4 by default) that
+ *  are collinear up to an angle epsilon, for coordinates with a little
+ *  noise. For every origin the other points are sorted by the angle of the
+ *  line through them and the origin, in [0, pi), and a chain is a window of
+ *  that order spanning at most epsilon: points seen from the origin in
+ *  nearly the same direction, on either side. Going around the circle from
+ *  a gap wider than epsilon, the first window with enough points is found
+ *  and the fullest window starting inside it is taken; the scan goes on
+ *  after it. So a cluster of angles is reported once per origin, windows of
+ *  one origin never share points, and a stray point just before a line
+ *  does not cut the line short.
+ *
+ *  The angle is quantized to a fixed-point fraction of pi and packed with
+ *  the index of the point into one long, so a chain is found with one
+ *  primitive Arrays.sort of n - 1 longs per origin and a two-pointer scan
+ *  over the sorted angles, wrapping around pi so that a chain across angle
+ *  0 (nearly horizontal) is not cut in two. The tolerance costs nothing over
+ *  the exact O(n^2 log n). Angles come from atan2 and are kept to about
+ *  1e-15, so two directions closer than that cannot be told apart.
+ *
+ *  epsilon = 0 asks for exact collinearity, which quantized angles cannot
+ *  give for wide coordinates: then the points are grouped by their exact
+ *  reduced direction in a DirectionMap instead, as in HashCollinearPoints,
+ *  and the chains are exactly the maximal lines of k or more points.
+ *
+ *  epsilon is an angle seen from the origin, so the offset it allows grows
+ *  with the distance from it; about the noise over the spacing of the
+ *  points is a good start. As in the exact finders a chain is reported only
+ *  from its lowest point, and its segment joins its two points that lie
+ *  farthest apart along the chain's mean direction. Near-collinearity is
+ *  not transitive, so chains seen from different points may overlap.
+ *****************************************************************************/
+import java.util.Arrays;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdDraw;
+import edu.princeton.cs.algs4.StdOut;
+
+public class NearCollinearPoints {
+    private final SegmentBuffer Segment;   // null if the segments went to a sink
+    private final int count;
+
+    /**
+     * constructor: finds all chains of 4(or more)points collinear within an angle
+     *
+     * @param points: all the points in the array; the array is not changed
+     * @param epsilon: largest angle, in radians, between two points of a chain as seen
+     *                 from its origin
+     * @throws NullPointerException     either the argument to the constructor is null or if
+     *                                  any point in the array is null;
+     * @throws IllegalArgumentException if the argument to the constructor contains a repeated point,
+     *                                  or if epsilon is negative or not a number
+     */
+    public NearCollinearPoints(Point[] points, double epsilon) {
+        this(points, epsilon, 4, null);
+    }
+
+    /**
+     * constructor: finds all chains of k(or more)points collinear within an angle and
+     * streams them to a sink, as they are found, instead of keeping them
+     *
+     * @param points: all the points in the array; the array is not changed
+     * @param epsilon: largest angle, in radians, between two points of a chain as seen
+     *                 from its origin
+     * @param k: fewest points of a chain
+     * @param sink: receives every segment; null to keep them for segments()
+     * @throws NullPointerException     either the argument to the constructor is null or if
+     *                                  any point in the array is null;
+     * @throws IllegalArgumentException if the argument to the constructor contains a repeated point,
+     *                                  or if epsilon is negative or not a number, or if(k < 3)
+     */
+    public NearCollinearPoints(Point[] points, double epsilon, int k, SegmentSink sink) {
+        if (!(epsilon >= 0)) throw new java.lang.IllegalArgumentException("epsilon should not be negative");
+        if (k < 3) throw new java.lang.IllegalArgumentException("k should be at least 3");
+        Point[] sorted = points.clone();
+        for (Point p : sorted)
+            if (p == null) throw new java.lang.NullPointerException();
+        Arrays.sort(sorted);
+        int length = sorted.length;
+        for (int n = 0; n < length - 1; n++) {
+            if (sorted[n].compareTo(sorted[n + 1]) == 0)
+                throw new java.lang.IllegalArgumentException();
+        }
+
+        int[] x = new int[length];
+        int[] y = new int[length];
+        for (int n = 0; n < length; n++) {
+            x[n] = sorted[n].x();
+            y[n] = sorted[n].y();
+        }
+
+        SegmentBuffer found = new SegmentBuffer(sorted);
+        if (epsilon == 0) {
+            count = exact(x, y, sorted, k, found, sink);
+            Segment = sink == null ? found : null;
+            return;
+        }
+
+        // the low indexBits of a key hold the point, the rest the angle in units of pi / 2^angleBits
+        int indexBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(length));
+        int angleBits = 63 - indexBits;
+        long half = 1L << angleBits;                           // the angle pi
+        long tolerance = (long) Math.min(half, Math.ceil(epsilon / Math.PI * half));
+        long indexMask = (1L << indexBits) - 1;
+
+        int total = 0;
+        long[] keys = new long[length];
+        int[] reach = new int[length];
+        for (int i = 0; i < length; i++) {
+            int m = 0;
+            for (int j = 0; j < length; j++) {
+                if (j == i) continue;
+                long dx = (long) x[j] - x[i], dy = (long) y[j] - y[i];
+                if (dy < 0 || (dy == 0 && dx < 0)) {   // the same line on either side
+                    dx = -dx;
+                    dy = -dy;
+                }
+                double angle = Math.atan2(dy, dx);      // in [0, pi)
+                long fixed = Math.min(half - 1, (long) (angle / Math.PI * half));
+                keys[m++] = (fixed << indexBits) | j;
+            }
+            Arrays.sort(keys, 0, m);
+            if (m < k - 1) continue;
+
+            // reach[t]: counting on around the circle past m, the last key within the tolerance of key t
+            int e = 0;
+            for (int t = 0; t < m; t++) {
+                e = Math.max(e, t);
+                while (e + 1 < t + m && angle(keys, m, e + 1, indexBits, half) - (keys[t] >>> indexBits) <= tolerance)
+                    e++;
+                reach[t] = e;
+            }
+            // start after a gap wider than the tolerance, if there is one, so that no
+            // window is cut in two by the start
+            int start = 0;
+            while (start < m && angle(keys, m, start + m, indexBits, half)
+                    - angle(keys, m, start + m - 1, indexBits, half) <= tolerance) start++;
+            if (start == m) start = 0;
+
+            // take windows greedily around the circle: at the first window that is large
+            // enough, report the fullest window starting inside it, and go on past it
+            int stop = start + m - 1;   // last key, unrolled
+            for (int u = start; u <= stop; ) {
+                int r = Math.min(stop, reach(reach, m, u));
+                if (r - u + 1 < k - 1) {
+                    u++;
+                    continue;
+                }
+                int best = u, bestEnd = r;
+                for (int v = u + 1; v <= r; v++) {
+                    int rv = Math.min(stop, reach(reach, m, v));
+                    if (rv - v > bestEnd - best) {
+                        best = v;
+                        bestEnd = rv;
+                    }
+                }
+                long segment = ends(keys, m, best % m, bestEnd - best + 1, i, indexMask, x, y, sorted);
+                if (segment >= 0) {
+                    int low = (int) (segment >>> 32), high = (int) segment;
+                    if (sink != null) sink.segment(sorted[low], sorted[high]);
+                    else found.add(low, high);
+                    total++;
+                }
+                u = bestEnd + 1;
+            }
+        }
+        Segment = sink == null ? found : null;
+        count = total;
+    }
+
+    // the maximal lines of k or more points, by exact direction from their lowest point
+    private static int exact(int[] x, int[] y, Point[] sorted, int k, SegmentBuffer found,
+                             SegmentSink sink) {
+        int length = sorted.length;
+        int total = 0;
+        DirectionMap directions = new DirectionMap(Math.max(length - 1, 1));
+        for (int i = 0; i < length; i++) {
+            directions.clear();
+            for (int j = 0; j < length; j++) {
+                if (j != i) directions.add((long) x[j] - x[i], (long) y[j] - y[i], j);
+            }
+            for (int d = 0; d < directions.size(); d++) {
+                int slot = directions.slot(d);
+                if (directions.count(slot) >= k - 1 && directions.first(slot) > i) {
+                    if (sink != null) sink.segment(sorted[i], sorted[directions.last(slot)]);
+                    else found.add(i, directions.last(slot));
+                    total++;
+                }
+            }
+        }
+        return total;
+    }
+
+    // reach of unrolled key u: the last unrolled key within the tolerance of it
+    private static int reach(int[] reach, int m, int u) {
+        return u < m ? reach[u] : reach[u - m] + m;
+    }
+
+    // fixed-point angle of key k of the circle unrolled twice: keys past m come back plus pi
+    private static long angle(long[] keys, int m, int k, int indexBits, long half) {
+        return k < m ? keys[k] >>> indexBits : (keys[k - m] >>> indexBits) + half;
+    }
+
+    // ends of a chain of size keys from position chain, low << 32 | high, or -1 if the
+    // origin is not its lowest point
+    private static long ends(long[] keys, int m, int chain, int size, int origin, long indexMask,
+                             int[] x, int[] y, Point[] points) {
+        for (int c = 0; c < size; c++)
+            if ((int) (keys[(chain + c) % m] & indexMask) < origin) return -1;
+
+        // the mean direction of the chain, every direction turned to agree with the first
+        double sx = 0, sy = 0;
+        for (int c = 0; c < size; c++) {
+            int j = (int) (keys[(chain + c) % m] & indexMask);
+            double dx = (double) x[j] - x[origin], dy = (double) y[j] - y[origin];
+            double norm = Math.hypot(dx, dy);
+            if (c > 0 && dx * sx + dy * sy < 0) norm = -norm;
+            sx += dx / norm;
+            sy += dy / norm;
+        }
+        // then the extreme points along it
+        int low = origin, high = origin;
+        double lowest = 0, highest = 0;
+        for (int c = 0; c < size; c++) {
+            int j = (int) (keys[(chain + c) % m] & indexMask);
+            double t = ((double) x[j] - x[origin]) * sx + ((double) y[j] - y[origin]) * sy;
+            if (t < lowest) { lowest = t; low = j; }
+            if (t > highest) { highest = t; high = j; }
+        }
+        if (points[high].compareTo(points[low]) < 0) { int t = low; low = high; high = t; }
+        return (long) low << 32 | high;
+    }
+
+    public int numberOfSegments() {
+        return count;
+    }
+
+    /**
+     * the segments found, made on every call
+     *
+     * @return LineSegment[]: a new array of the segments
+     * @throws IllegalStateException if the segments were streamed to a sink
+     */
+    public LineSegment[] segments() {
+        if (Segment == null)
+            throw new java.lang.IllegalStateException("segments were streamed to a sink");
+        return Segment.toSegments();
+    }
+
+    public static void main(String[] args) {
+
+        // read the n points from a file
+        In in = new In(args[0]);
+        int n = in.readInt();
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            int x = in.readInt();
+            int y = in.readInt();
+            points[i] = new Point(x, y);
+        }
+        double epsilon = Double.parseDouble(args[1]);
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        // draw the points
+        StdDraw.enableDoubleBuffering();
+        StdDraw.setXscale(0, 32768);
+        StdDraw.setYscale(0, 32768);
+        for (Point p : points) {
+            p.draw();
+        }
+        StdDraw.show();
+
+        // print and draw the line segments
+        NearCollinearPoints collinear = new NearCollinearPoints(points, epsilon, k, null);
+        for (LineSegment segment : collinear.segments()) {
+            StdOut.println(segment);
+            segment.draw();
+        }
+        StdDraw.show();
+    }
+}
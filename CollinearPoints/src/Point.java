@@ -4,7 +4,7 @@
  *  Dependencies: none
  *  Author:         Yan Xu
  *  Written:        9/14/2016
- *  Last updated:   9/14/2016
+ *  Last updated:   10/17/2026
  *
  *
  *  An immutable data type for points in the plane.
@@ -32,6 +32,15 @@ public class Point implements Comparable<Point> {
         this.y = y;
     }
 
+    // coordinates, for the engines that work on primitive arrays
+    int x() {
+        return x;
+    }
+
+    int y() {
+        return y;
+    }
+
     /**
      * Draws this point to standard draw.
      */
@@ -0,0 +1,80 @@
+/*****************************************************************************
+ *  Compilation:    javac SegmentBuffer.java;
+ *  Execution:      none
+ *  Dependency:     Point.java
+ *                  LineSegment.java
+ *                  SegmentSink.java
+ *
+ *  SegmentBuffer holds the segments a collinear finder has found as pairs of
+ *  indices into its points array, two ints per segment in one array that
+ *  doubles when it is full. LineSegment objects are only made by
+ *  toSegments(), so a finder that is only asked numberOfSegments(), or that
+ *  streams to a SegmentSink, never makes any.
+ *****************************************************************************/
+import java.util.Arrays;
+
+class SegmentBuffer {
+    private final Point[] points;   // the points the indices refer to
+    private int[] ends = new int[16];   // ends[2k], ends[2k+1]: endpoints of segment k
+    private int size = 0;
+
+    /**
+     * constructor: an empty buffer over the given points
+     *
+     * @param points: points indexed by the segments; not copied
+     */
+    SegmentBuffer(Point[] points) {
+        this.points = points;
+    }
+
+    /**
+     * add the segment from points[p] to points[q]
+     */
+    void add(int p, int q) {
+        if (2 * size == ends.length) ends = Arrays.copyOf(ends, 2 * ends.length);
+        ends[2 * size] = p;
+        ends[2 * size + 1] = q;
+        size++;
+    }
+
+    /**
+     * add every segment of another buffer over the same points
+     */
+    void addAll(SegmentBuffer that) {
+        if (2 * (size + that.size) > ends.length)
+            ends = Arrays.copyOf(ends, Math.max(2 * ends.length, 2 * (size + that.size)));
+        System.arraycopy(that.ends, 0, ends, 2 * size, 2 * that.size);
+        size += that.size;
+    }
+
+    // number of segments
+    int size() {
+        return size;
+    }
+
+    /**
+     * remove every segment, keeping the array
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * hand every segment, in order, to the sink
+     */
+    void emit(SegmentSink sink) {
+        for (int k = 0; k < size; k++)
+            sink.segment(points[ends[2 * k]], points[ends[2 * k + 1]]);
+    }
+
+    /**
+     * make the segments
+     * @return LineSegment[]: a new array with one LineSegment per segment, in order
+     */
+    LineSegment[] toSegments() {
+        LineSegment[] segments = new LineSegment[size];
+        for (int k = 0; k < size; k++)
+            segments[k] = new LineSegment(points[ends[2 * k]], points[ends[2 * k + 1]]);
+        return segments;
+    }
+}
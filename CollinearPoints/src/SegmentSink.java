@@ -0,0 +1,21 @@
+/*****************************************************************************
+ *  Compilation:    javac SegmentSink.java;
+ *  Execution:      none
+ *  Dependency:     Point.java
+ *
+ *  SegmentSink receives line segments one at a time as a collinear finder
+ *  discovers them, so a caller can count, draw or write them out without the
+ *  finder keeping them all. The endpoints are the lowest and the highest
+ *  point of the segment in natural order.
+ *****************************************************************************/
+
+public interface SegmentSink {
+
+    /**
+     * take one segment
+     *
+     * @param p: lowest point of the segment
+     * @param q: highest point of the segment
+     */
+    void segment(Point p, Point q);
+}
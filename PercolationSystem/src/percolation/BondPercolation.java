@@ -0,0 +1,135 @@
+package percolation;
+
+/*****************************************************************************
+ *  Compilation:    javac BondPercolation.java;
+ *  Execution:      none
+ *  Dependency:     UnionFind.java
+ *
+ *  BondPercolation is bond percolation on the square lattice: all n*n sites
+ *  are present and the 2n(n-1) bonds between neighbouring sites are opened
+ *  instead. A site is full when open bonds join it to the first row, and
+ *  the system percolates when they join the first row to the last. Bonds
+ *  are numbered for open(int):
+ *
+ *      horizontal bond from (i, j) to (i, j+1)    (i-1) * (n-1) + (j-1)
+ *      vertical bond from (i, j) to (i+1, j)      n*(n-1) + (i-1) * n + (j-1)
+ *
+ *  The bond threshold of the square lattice is exactly 1/2. A 1-by-1 grid
+ *  has no bonds and percolates from the start.
+ *****************************************************************************/
+
+public class BondPercolation implements Lattice {
+    public static final int RIGHT = 0;    // bond to the site on the right
+    public static final int DOWN = 1;     // bond to the site below
+
+    private static final byte TOP = 2;    // cluster touches the first row
+    private static final byte BOTTOM = 4; // cluster touches the last row
+
+    private final int n;                  // number of rows in the grid
+    private final int horizontal;         // number of horizontal bonds, n*(n-1)
+    private final UnionFind.Halving uf;   // clusters of sites
+    private final byte[] state;           // TOP/BOTTOM, valid at roots
+    private final boolean[] open;         // open bonds
+    private boolean percolates;           // some cluster touches both top and bottom
+
+    /**
+     * constructor: create n-by-n grid, with all bonds blocked
+     *
+     * @param n: number of rows in the grid
+     * @throws IllegalArgumentException if(n <=0) or 2n(n-1) bonds do not fit in an array
+     */
+    public BondPercolation(int n){
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        if (2L * n * (n - 1) > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("n is too large");
+        this.n = n;
+        horizontal = n * (n - 1);
+        uf = new UnionFind.Halving(n * n);
+        state = new byte[n * n];
+        open = new boolean[2 * horizontal];
+        for (int j = 0; j < n; j++) {
+            state[j] |= TOP;
+            state[(n - 1) * n + j] |= BOTTOM;
+        }
+        percolates = n == 1;
+    }
+
+    /**
+     * open the bond from site(row i, column j) to its right or lower neighbour
+     *
+     * @param direction: RIGHT or DOWN
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     *         or the bond would leave the grid
+     */
+    public void open(int i, int j, int direction){
+        openBond(bond(i, j, direction));
+    }
+
+    /**
+     * open the bond with the given index
+     *
+     * @throws IndexOutOfBoundsException if bond is outside 0 .. 2n(n-1)-1
+     */
+    public void open(int bond){
+        if (bond < 0 || bond >= open.length)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        openBond(bond);
+    }
+
+    public int elements(){
+        return open.length;
+    }
+
+    /**
+     * show whether the bond from site(row i, column j) to its right or lower neighbour is open
+     *
+     * @throws IndexOutOfBoundsException if the bond is not in the grid
+     */
+    public boolean isOpen(int i, int j, int direction){
+        return open[bond(i, j, direction)];
+    }
+
+    /**
+     * show whether site(row i, column j) is joined to the first row by open bonds
+     *
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isFull(int i, int j){
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        return (state[uf.find((i-1) * n + (j-1))] & TOP) != 0;
+    }
+
+    public boolean percolates(){
+        return percolates;
+    }
+
+    private void openBond(int bond) {
+        if (open[bond]) return;
+        open[bond] = true;
+        int p, q;
+        if (bond < horizontal) {
+            int i = bond / (n - 1);
+            p = i * n + (bond - i * (n - 1));
+            q = p + 1;
+        }
+        else {
+            p = bond - horizontal;
+            q = p + n;
+        }
+        int rootP = uf.find(p);
+        int rootQ = uf.find(q);
+        if (rootP == rootQ) return;
+        byte flags = (byte) (state[rootP] | state[rootQ]);
+        state[uf.union(rootP, rootQ)] = flags;
+        if (flags == (TOP | BOTTOM)) percolates = true;
+    }
+
+    private int bond(int i, int j, int direction) {
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        if (direction == RIGHT && j < n) return (i-1) * (n-1) + (j-1);
+        if (direction == DOWN && i < n) return horizontal + (i-1) * n + (j-1);
+        throw new IndexOutOfBoundsException("bond out of bounds");
+    }
+}
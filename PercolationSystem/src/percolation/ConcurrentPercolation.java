@@ -0,0 +1,216 @@
+package percolation;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import edu.princeton.cs.algs4.Stopwatch;
+
+/*****************************************************************************
+ *  Compilation:    javac ConcurrentPercolation.java;
+ *  Execution:      java ConcurrentPercolation n threads;
+ *  Dependency:     Percolation.java (for the check in main)
+ *
+ *  ConcurrentPercolation is a Percolation that many threads may use at once:
+ *  any number of threads can open sites while others poll isOpen(), isFull()
+ *  and percolates(). No method takes a lock.
+ *
+ *  The union-find is the wait-free style of Anderson and Woll. Every site has
+ *  one 64-bit word holding its parent (low 32 bits), the TOP/BOTTOM flags of
+ *  its cluster and its rank (high bits), so a root is linked under another
+ *  root by a single compareAndSet that also checks that it is still a root
+ *  of the same rank and flags. Finds halve the path with compareAndSet and
+ *  simply move on when they lose a race. Linking is by rank, ties broken by
+ *  index; bumping the rank of the new root is best effort.
+ *
+ *  Before a root is linked, its flags are ORed into the other root, and the
+ *  link only succeeds if the child's word, flags included, has not changed
+ *  since; otherwise the union starts over. Flags are only ever added to a
+ *  root, so every site's flags are contained in its parent's, and a site that
+ *  has been seen full stays full. percolates() is a volatile flag set as soon
+ *  as some root holds both TOP and BOTTOM. The open bit of every site is kept
+ *  apart, in an int set atomically.
+ *
+ *  An open(i, j) that has returned is seen by every later call on any thread.
+ *****************************************************************************/
+
+public class ConcurrentPercolation {
+    private static final int OPEN = 1;              // site is open
+    private static final long TOP = 1L << 32;       // cluster touches the first row
+    private static final long BOTTOM = 2L << 32;    // cluster touches the last row
+    private static final long RANK = 1L << 40;      // one step of rank
+    private static final long PARENT = 0xffffffffL;
+
+    private final int n;                  // number of rows in the grid
+    private final AtomicLongArray node;   // rank | flags | parent, parent == site at a root
+    private final AtomicIntegerArray state;   // OPEN
+    private volatile boolean percolates;
+
+    /**
+     * constructor: create n-by-n grid, with all sites blocked
+     *
+     * @param n: number of rows in the grid
+     * @throws IllegalArgumentException if(n <=0) or n*n sites do not fit in an array
+     */
+    public ConcurrentPercolation(int n){
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        if ((long) n * n > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("n is too large");
+        this.n = n;
+        node = new AtomicLongArray(n * n);
+        for (int site = 0; site < n * n; site++) node.lazySet(site, site);
+        state = new AtomicIntegerArray(n * n);
+    }
+
+    /**
+     * open site(row i, column j) if it is not open already
+     * if its up or down or left or right site is also open, union them
+     *
+     * @param i: row
+     * @param j: column
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public void open(int i, int j){
+        if (j < 1||i < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+
+        int site = (i-1) * n + (j-1);
+        if (!state.compareAndSet(site, 0, OPEN)) return;
+        long flags = 0;
+        if (i == 1) flags |= TOP;
+        if (i == n) flags |= BOTTOM;
+        if (flags != 0) addFlags(site, flags);
+
+        // of two neighbours opened at the same time, at least one sees the other
+        if (i > 1 && (state.get(site - n) & OPEN) != 0) union(site, site - n);
+        if (i < n && (state.get(site + n) & OPEN) != 0) union(site, site + n);
+        if (j > 1 && (state.get(site - 1) & OPEN) != 0) union(site, site - 1);
+        if (j < n && (state.get(site + 1) & OPEN) != 0) union(site, site + 1);
+    }
+
+    /**
+     * show whether site(row i, column j) is open
+     *
+     * @param i: row
+     * @param j: column
+     * @return Boolean value: true(open) or false(block)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isOpen(int i, int j){
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        return (state.get((i-1) * n + (j-1)) & OPEN) != 0;
+    }
+
+    /**
+     * show whether site(row i, column j) is full
+     *
+     * @param i: row
+     * @param j: column
+     * @return Boolean value: true(full) or false(not full)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isFull(int i, int j){
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        return (node.get(find((i-1) * n + (j-1))) & TOP) != 0;
+    }
+
+    /**
+     * show whether the system percolate
+     * @return Boolean value: true(percolates) or false(not percolates)
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    // root of site p, halving the path on the way up
+    private int find(int p) {
+        while (true) {
+            long v = node.get(p);
+            int q = (int) (v & PARENT);
+            if (q == p) return p;
+            long w = node.get(q);
+            int g = (int) (w & PARENT);
+            if (g == q) return q;
+            // point p at its grandparent; losing the race is harmless
+            node.compareAndSet(p, v, (v & ~PARENT) | g);
+            p = g;
+        }
+    }
+
+    private void union(int p, int q) {
+        while (true) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) return;
+            long vP = node.get(rootP);
+            long vQ = node.get(rootQ);
+            if ((int) (vP & PARENT) != rootP || (int) (vQ & PARENT) != rootQ) continue;
+            long rankP = vP >>> 40;
+            long rankQ = vQ >>> 40;
+            // link the lower rank (or, on a tie, the lower index) under the other
+            if (rankP > rankQ || (rankP == rankQ && rootP > rootQ)) {
+                int t = rootP; rootP = rootQ; rootQ = t;
+                long tv = vP; vP = vQ; vQ = tv;
+            }
+            // the flags go up first, so no site of rootP is ever seen less full
+            long merged = vQ | (vP & (TOP | BOTTOM));
+            if (merged != vQ) {
+                if (!node.compareAndSet(rootQ, vQ, merged)) continue;
+                checkPercolates(merged);
+                vQ = merged;
+            }
+            // fails if rootP was linked or got more flags meanwhile
+            if (!node.compareAndSet(rootP, vP, (vP & ~PARENT) | rootQ)) continue;
+            if ((vP >>> 40) == (vQ >>> 40))
+                node.compareAndSet(rootQ, vQ, vQ + RANK);
+            return;
+        }
+    }
+
+    // OR flags into the root of site p
+    private void addFlags(int p, long flags) {
+        while (true) {
+            int root = find(p);
+            long v = node.get(root);
+            if ((int) (v & PARENT) != root) continue;
+            if ((v | flags) == v || node.compareAndSet(root, v, v | flags)) {
+                checkPercolates(v | flags);
+                return;
+            }
+        }
+    }
+
+    private void checkPercolates(long v) {
+        if ((v & (TOP | BOTTOM)) == (TOP | BOTTOM)) percolates = true;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final int n = Integer.parseInt(args[0]);
+        int threads = Integer.parseInt(args[1]);
+        final ConcurrentPercolation perc = new ConcurrentPercolation(n);
+
+        Stopwatch time = new Stopwatch();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final SplittableRandom random = new SplittableRandom(t);
+            workers[t] = new Thread(() -> {
+                while (!perc.percolates())
+                    perc.open(random.nextInt(n) + 1, random.nextInt(n) + 1);
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) w.join();
+        System.out.println("percolates after " + time.elapsedTime() + "s");
+
+        // the same open sites in a sequential Percolation must agree everywhere
+        Percolation check = new Percolation(n);
+        for (int i = 1; i <= n; i++)
+            for (int j = 1; j <= n; j++)
+                if (perc.isOpen(i, j)) check.open(i, j);
+        int wrong = 0;
+        for (int i = 1; i <= n; i++)
+            for (int j = 1; j <= n; j++)
+                if (perc.isFull(i, j) != check.isFull(i, j)) wrong++;
+        System.out.println(wrong + " sites disagree with Percolation");
+    }
+}
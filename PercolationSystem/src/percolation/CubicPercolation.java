@@ -0,0 +1,125 @@
+package percolation;
+
+/*****************************************************************************
+ *  Compilation:    javac CubicPercolation.java;
+ *  Execution:      none
+ *  Dependency:     UnionFind.java
+ *
+ *  CubicPercolation is site percolation on the simple cubic lattice: an
+ *  n-by-n-by-n block of sites, each with six neighbours. Site (i, j, k) is in
+ *  layer i, row j, column k; the system percolates when an open cluster
+ *  joins the first layer to the last. As in Percolation every union-find
+ *  root carries TOP and BOTTOM flags, so there is no backwash.
+ *****************************************************************************/
+
+public class CubicPercolation implements Lattice {
+    private static final byte OPEN = 1;   // site is open
+    private static final byte TOP = 2;    // cluster touches the first layer
+    private static final byte BOTTOM = 4; // cluster touches the last layer
+
+    private final int n;                  // sites along each axis
+    private final int layer;              // sites per layer, n*n
+    private final UnionFind.Halving uf;   // clusters of sites
+    private final byte[] state;           // OPEN for every site, TOP/BOTTOM valid at roots
+    private boolean percolates;           // some cluster touches both first and last layer
+
+    /**
+     * constructor: create n-by-n-by-n lattice, with all sites blocked
+     *
+     * @param n: number of sites along each axis
+     * @throws IllegalArgumentException if(n <=0) or n*n*n sites do not fit in an array
+     */
+    public CubicPercolation(int n){
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        if ((long) n * n * n > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("n is too large");
+        this.n = n;
+        layer = n * n;
+        uf = new UnionFind.Halving(n * layer);
+        state = new byte[n * layer];
+    }
+
+    /**
+     * open site(layer i, row j, column k) if it is not open already
+     * and union it with its open neighbours
+     *
+     * @throws IndexOutOfBoundsException if (i,j,k) is outside the range from (1,1,1) to (n,n,n)
+     */
+    public void open(int i, int j, int k){
+        openSite(index(i, j, k));
+    }
+
+    /**
+     * open the site with linear index (i-1) * n*n + (j-1) * n + (k-1)
+     *
+     * @throws IndexOutOfBoundsException if site is outside 0 .. n*n*n-1
+     */
+    public void open(int site){
+        if (site < 0 || site >= state.length)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        openSite(site);
+    }
+
+    public int elements(){
+        return state.length;
+    }
+
+    /**
+     * show whether site(layer i, row j, column k) is open
+     *
+     * @throws IndexOutOfBoundsException if (i,j,k) is outside the range from (1,1,1) to (n,n,n)
+     */
+    public boolean isOpen(int i, int j, int k){
+        return state[index(i, j, k)] != 0;
+    }
+
+    /**
+     * show whether site(layer i, row j, column k) is connected to the first layer
+     *
+     * @throws IndexOutOfBoundsException if (i,j,k) is outside the range from (1,1,1) to (n,n,n)
+     */
+    public boolean isFull(int i, int j, int k){
+        return (state[uf.find(index(i, j, k))] & TOP) != 0;
+    }
+
+    public boolean percolates(){
+        return percolates;
+    }
+
+    private void openSite(int site) {
+        if (state[site] != 0) return;
+        int i = site / layer;              // 0-based layer, row and column
+        int rest = site - i * layer;
+        int j = rest / n;
+        int k = rest - j * n;
+
+        byte flags = OPEN;
+        if (i == 0) flags |= TOP;
+        if (i == n - 1) flags |= BOTTOM;
+        state[site] = flags;
+
+        if (i > 0     && state[site - layer] != 0) union(site, site - layer);
+        if (i < n - 1 && state[site + layer] != 0) union(site, site + layer);
+        if (j > 0     && state[site - n] != 0)     union(site, site - n);
+        if (j < n - 1 && state[site + n] != 0)     union(site, site + n);
+        if (k > 0     && state[site - 1] != 0)     union(site, site - 1);
+        if (k < n - 1 && state[site + 1] != 0)     union(site, site + 1);
+
+        if ((state[uf.find(site)] & (TOP | BOTTOM)) == (TOP | BOTTOM)) percolates = true;
+    }
+
+    // merge the clusters of p and q; the merged root gets the flags of both
+    private void union(int p, int q) {
+        int rootP = uf.find(p);
+        int rootQ = uf.find(q);
+        if (rootP == rootQ) return;
+        byte flags = (byte) (state[rootP] | state[rootQ]);
+        state[uf.union(rootP, rootQ)] = flags;
+    }
+
+    private int index(int i, int j, int k) {
+        if (i < 1||j < 1||k < 1||i > n||j > n||k > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        return (i-1) * layer + (j-1) * n + (k-1);
+    }
+}
@@ -0,0 +1,424 @@
+package percolation;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/*****************************************************************************
+ *  Compilation:    javac DynamicConnectivity.java;
+ *  Execution:      none
+ *  Dependency:     none
+ *
+ *  DynamicConnectivity keeps the connected components of a graph on a fixed
+ *  set of vertices 0..V-1 while edges are inserted and deleted, following
+ *  Holm, de Lichtenberg and Thorup. Connectivity queries cost O(log V) and
+ *  updates O(log^2 V) amortized.
+ *
+ *  Every edge has a level between 0 and log2(V). F_i is a spanning forest of
+ *  the edges of level >= i, and F_0 answers connected(). When a tree edge of
+ *  level l is deleted, the levels l, l-1, ..., 0 are searched for a
+ *  replacement: the smaller of the two halves first pushes its level-i tree
+ *  edges up to level i+1, then its level-i non-tree edges are tried one by
+ *  one; each one that does not reconnect the halves is pushed up as well.
+ *  A level-i tree has at most V / 2^i vertices, which bounds the levels.
+ *
+ *  Each forest is stored as Euler tours kept in treaps with parent links.
+ *  A tour holds one node per vertex and one node per direction of each tree
+ *  edge. Subtree counts of vertex nodes, of "tree edge of exactly this level"
+ *  marks and of "vertex has non-tree edges at this level" marks let a search
+ *  jump straight to the next edge or vertex of interest. All nodes live in
+ *  parallel int arrays. Edges are identified by caller-chosen ids 0..E-1.
+ *****************************************************************************/
+
+class DynamicConnectivity {
+    private static final int VERTEX = 1;    // node is the vertex of a tour
+    private static final int TREE = 2;      // arc of a tree edge whose level is this forest
+    private static final int NONTREE = 4;   // vertex with non-tree edges at this level
+    private static final byte ABSENT = 0, TREE_EDGE = 1, NONTREE_EDGE = 2;
+
+    private final int vertices;
+    private final int levels;
+
+    // edges
+    private final int[] from, to;           // endpoints of each edge
+    private final byte[] kind;              // ABSENT, TREE_EDGE or NONTREE_EDGE
+    private final byte[] level;
+    private final int[][] arcFrom, arcTo;   // [level][edge]: tour nodes of both directions
+    private final int[][] vertex;           // [level][vertex]: tour node of the vertex
+    private final int[][] head;             // [level][vertex]: first non-tree half edge
+    private final int[] next, prev;         // non-tree half edges 2e (at from) and 2e+1 (at to)
+
+    // treap nodes
+    private int[] left, right, parent, priority, owner;
+    private int[] size, vertexCount, treeCount, nontreeCount;
+    private byte[] mark;
+    private int nodes = 0;                   // nodes ever allocated
+    private int[] free = new int[16];        // released nodes
+    private int freeCount = 0;
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    // results of split()
+    private int splitLeft, splitRight;
+
+    /**
+     * constructor: a graph on vertices 0..vertices-1 with no edges, whose
+     * edges will have ids 0..edges-1
+     */
+    DynamicConnectivity(int vertices, int edges) {
+        this.vertices = vertices;
+        levels = 33 - Integer.numberOfLeadingZeros(Math.max(vertices, 1));
+        from = new int[edges];
+        to = new int[edges];
+        kind = new byte[edges];
+        level = new byte[edges];
+        arcFrom = new int[levels][];
+        arcTo = new int[levels][];
+        vertex = new int[levels][];
+        head = new int[levels][];
+        next = new int[2 * edges];
+        prev = new int[2 * edges];
+
+        int capacity = 2 * vertices + 16;
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+        priority = new int[capacity];
+        owner = new int[capacity];
+        size = new int[capacity];
+        vertexCount = new int[capacity];
+        treeCount = new int[capacity];
+        nontreeCount = new int[capacity];
+        mark = new byte[capacity];
+    }
+
+    /**
+     * are u and v in the same component
+     */
+    boolean connected(int u, int v) {
+        if (u == v) return true;
+        int[] tour = vertex[0];
+        if (tour == null || tour[u] < 0 || tour[v] < 0) return false;
+        return root(tour[u]) == root(tour[v]);
+    }
+
+    /**
+     * is edge e in the graph
+     */
+    boolean contains(int e) {
+        return kind[e] != ABSENT;
+    }
+
+    /**
+     * add edge e between u and v; e must not be in the graph
+     */
+    void insert(int e, int u, int v) {
+        from[e] = u;
+        to[e] = v;
+        level[e] = 0;
+        if (u != v && root(vertexNode(0, u)) != root(vertexNode(0, v))) {
+            kind[e] = TREE_EDGE;
+            link(0, e, true);
+        }
+        else {
+            kind[e] = NONTREE_EDGE;
+            addNontree(0, e);
+        }
+    }
+
+    /**
+     * remove edge e; does nothing if e is not in the graph
+     */
+    void delete(int e) {
+        if (kind[e] == ABSENT) return;
+        int l = level[e];
+        if (kind[e] == NONTREE_EDGE) {
+            removeNontree(l, e);
+            kind[e] = ABSENT;
+            return;
+        }
+        kind[e] = ABSENT;
+        for (int i = 0; i <= l; i++) cut(i, e);
+        for (int i = l; i >= 0; i--)
+            if (replace(i, from[e], to[e])) return;
+    }
+
+    // look for a level-i edge reconnecting the trees of u and v in F_i
+    private boolean replace(int i, int u, int v) {
+        int small = root(vertexNode(i, u));
+        int large = root(vertexNode(i, v));
+        if (vertexCount[small] > vertexCount[large]) {
+            int t = small; small = large; large = t;
+        }
+
+        // the smaller tree fits one level up: push its level-i tree edges there
+        while (treeCount[small] > 0) {
+            int arc = find(small, TREE);
+            int e = owner[arc];
+            setMark(arc, TREE, false);
+            level[e] = (byte) (i + 1);
+            link(i + 1, e, true);
+        }
+
+        // try the level-i non-tree edges leaving the smaller tree
+        while (nontreeCount[small] > 0) {
+            int w = owner[find(small, NONTREE)];
+            int h = head[i][w];
+            while (h >= 0) {
+                int hn = next[h];
+                int e = h >> 1;
+                int other = (h & 1) == 0 ? to[e] : from[e];
+                removeNontree(i, e);
+                if (root(vertexNode(i, other)) == large) {
+                    kind[e] = TREE_EDGE;
+                    for (int j = 0; j <= i; j++) link(j, e, j == i);
+                    return true;
+                }
+                level[e] = (byte) (i + 1);
+                addNontree(i + 1, e);
+                h = hn;
+            }
+        }
+        return false;
+    }
+
+    /*************************************************************************
+     *  Euler tours
+     *************************************************************************/
+
+    // join the tours of the endpoints of e in F_i with both arcs of e
+    private void link(int i, int e, boolean own) {
+        int tu = reroot(vertexNode(i, from[e]));
+        int tv = reroot(vertexNode(i, to[e]));
+        if (arcFrom[i] == null) {
+            arcFrom[i] = new int[kind.length];
+            arcTo[i] = new int[kind.length];
+        }
+        int a = newNode(e, own ? TREE : 0);
+        int b = newNode(e, 0);
+        arcFrom[i][e] = a;
+        arcTo[i][e] = b;
+        merge(merge(merge(tu, a), tv), b);
+    }
+
+    // remove both arcs of e from F_i: A a B b C becomes B and A C
+    private void cut(int i, int e) {
+        int a = arcFrom[i][e];
+        int b = arcTo[i][e];
+        if (index(a) > index(b)) {
+            int t = a; a = b; b = t;
+        }
+        split(a, true);
+        int before = splitLeft;
+        split(a, false);
+        split(b, true);
+        split(b, false);
+        merge(before, splitRight);
+        release(a);
+        release(b);
+    }
+
+    // rotate the tour containing node x so that it starts at x
+    private int reroot(int x) {
+        split(x, true);
+        return merge(splitRight, splitLeft);
+    }
+
+    // tour node of vertex v in F_i, created on first use
+    private int vertexNode(int i, int v) {
+        if (vertex[i] == null) {
+            vertex[i] = new int[vertices];
+            Arrays.fill(vertex[i], -1);
+        }
+        if (vertex[i][v] < 0) {
+            int flags = VERTEX;
+            if (head[i] != null && head[i][v] >= 0) flags |= NONTREE;
+            vertex[i][v] = newNode(v, flags);
+        }
+        return vertex[i][v];
+    }
+
+    /*************************************************************************
+     *  non-tree edges
+     *************************************************************************/
+
+    private void addNontree(int i, int e) {
+        if (head[i] == null) {
+            head[i] = new int[vertices];
+            Arrays.fill(head[i], -1);
+        }
+        push(i, 2 * e, from[e]);
+        push(i, 2 * e + 1, to[e]);
+    }
+
+    private void removeNontree(int i, int e) {
+        pop(i, 2 * e, from[e]);
+        pop(i, 2 * e + 1, to[e]);
+    }
+
+    private void push(int i, int h, int w) {
+        int first = head[i][w];
+        next[h] = first;
+        prev[h] = -1;
+        if (first >= 0) prev[first] = h;
+        head[i][w] = h;
+        if (first < 0) setMark(vertexNode(i, w), NONTREE, true);
+    }
+
+    private void pop(int i, int h, int w) {
+        if (prev[h] >= 0) next[prev[h]] = next[h];
+        else head[i][w] = next[h];
+        if (next[h] >= 0) prev[next[h]] = prev[h];
+        if (head[i][w] < 0) setMark(vertexNode(i, w), NONTREE, false);
+    }
+
+    /*************************************************************************
+     *  treap with parent links, ordered by position in the tour
+     *************************************************************************/
+
+    private int newNode(int who, int flags) {
+        int x;
+        if (freeCount > 0) x = free[--freeCount];
+        else {
+            if (nodes == left.length) grow();
+            x = nodes++;
+        }
+        left[x] = right[x] = parent[x] = -1;
+        priority[x] = random.nextInt();
+        owner[x] = who;
+        mark[x] = (byte) flags;
+        update(x);
+        return x;
+    }
+
+    private void release(int x) {
+        if (freeCount == free.length) free = Arrays.copyOf(free, 2 * free.length);
+        free[freeCount++] = x;
+    }
+
+    private void grow() {
+        int capacity = 2 * left.length;
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        owner = Arrays.copyOf(owner, capacity);
+        size = Arrays.copyOf(size, capacity);
+        vertexCount = Arrays.copyOf(vertexCount, capacity);
+        treeCount = Arrays.copyOf(treeCount, capacity);
+        nontreeCount = Arrays.copyOf(nontreeCount, capacity);
+        mark = Arrays.copyOf(mark, capacity);
+    }
+
+    private void update(int x) {
+        int l = left[x], r = right[x];
+        size[x] = 1;
+        vertexCount[x] = mark[x] & VERTEX;
+        treeCount[x] = (mark[x] & TREE) >> 1;
+        nontreeCount[x] = (mark[x] & NONTREE) >> 2;
+        if (l >= 0) {
+            size[x] += size[l];
+            vertexCount[x] += vertexCount[l];
+            treeCount[x] += treeCount[l];
+            nontreeCount[x] += nontreeCount[l];
+        }
+        if (r >= 0) {
+            size[x] += size[r];
+            vertexCount[x] += vertexCount[r];
+            treeCount[x] += treeCount[r];
+            nontreeCount[x] += nontreeCount[r];
+        }
+    }
+
+    private void setMark(int x, int flag, boolean on) {
+        if (on) mark[x] |= flag;
+        else mark[x] &= ~flag;
+        for (; x >= 0; x = parent[x]) update(x);
+    }
+
+    private int root(int x) {
+        while (parent[x] >= 0) x = parent[x];
+        return x;
+    }
+
+    // position of x in its tour
+    private int index(int x) {
+        int i = left[x] >= 0 ? size[left[x]] : 0;
+        for (int p = parent[x]; p >= 0; x = p, p = parent[p])
+            if (right[p] == x) i += 1 + (left[p] >= 0 ? size[left[p]] : 0);
+        return i;
+    }
+
+    // first node of the tour rooted at t carrying the given mark
+    private int find(int t, int flag) {
+        int x = t;
+        while (true) {
+            int l = left[x];
+            if (l >= 0 && count(l, flag) > 0) x = l;
+            else if ((mark[x] & flag) != 0) return x;
+            else x = right[x];
+        }
+    }
+
+    private int count(int x, int flag) {
+        return flag == TREE ? treeCount[x] : flag == NONTREE ? nontreeCount[x] : vertexCount[x];
+    }
+
+    private int merge(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        int m;
+        if (priority[a] > priority[b]) {
+            m = merge(right[a], b);
+            right[a] = m;
+            parent[m] = a;
+            update(a);
+            parent[a] = -1;
+            return a;
+        }
+        m = merge(a, left[b]);
+        left[b] = m;
+        parent[m] = b;
+        update(b);
+        parent[b] = -1;
+        return b;
+    }
+
+    // split the tour of x just before x (before == true) or just after it
+    private void split(int x, boolean before) {
+        int l, r;
+        if (before) {
+            l = left[x];
+            left[x] = -1;
+            r = x;
+        }
+        else {
+            r = right[x];
+            right[x] = -1;
+            l = x;
+        }
+        if (before && l >= 0) parent[l] = -1;
+        if (!before && r >= 0) parent[r] = -1;
+        update(x);
+
+        int child = x;
+        int p = parent[x];
+        parent[x] = -1;
+        while (p >= 0) {
+            int up = parent[p];
+            if (right[p] == child) {
+                right[p] = l;
+                if (l >= 0) parent[l] = p;
+                l = p;
+            }
+            else {
+                left[p] = r;
+                if (r >= 0) parent[r] = p;
+                r = p;
+            }
+            update(p);
+            parent[p] = -1;
+            child = p;
+            p = up;
+        }
+        splitLeft = l;
+        splitRight = r;
+    }
+}
@@ -0,0 +1,171 @@
+package percolation;
+import java.util.SplittableRandom;
+
+/*****************************************************************************
+ *  Compilation:    javac DynamicPercolation.java;
+ *  Execution:      java DynamicPercolation n operations;
+ *  Dependency:     DynamicConnectivity.java
+ *                  Percolation.java (for the check in main)
+ *
+ *  DynamicPercolation is a Percolation whose sites can be blocked again with
+ *  close(i, j). It keeps the open-site graph in fully dynamic connectivity
+ *  structures (DynamicConnectivity) instead of union-find, so closing a site
+ *  really deletes its edges. Opening or closing a site inserts or deletes at
+ *  most six edges, O(log^2 n) amortized each; isFull() and percolates() are
+ *  connectivity queries costing O(log n), whatever sequence of opens and
+ *  closes came before.
+ *
+ *  As with the two union-finds of the original Percolation there are two
+ *  graphs: one with a virtual top vertex only, which answers isFull(), and
+ *  one with a virtual top and a virtual bottom vertex, which answers
+ *  percolates(). A single graph would report bottom-row sites as full
+ *  through the bottom vertex (backwash).
+ *
+ *  For a batch of operations known in advance PercolationScenario answers
+ *  the same questions offline, with less memory.
+ *****************************************************************************/
+
+public class DynamicPercolation {
+    private final int n;                      // number of rows in the grid
+    private final int top, bottom;            // virtual vertices
+    private final boolean[] open;             // open sites
+    private final DynamicConnectivity full;   // sites and the top vertex
+    private final DynamicConnectivity span;   // sites, top and bottom vertices
+
+    /**
+     * constructor: create n-by-n grid, with all sites blocked
+     *
+     * @param n: number of rows in the grid
+     * @throws IllegalArgumentException if(n <=0) or the grid is too large
+     */
+    public DynamicPercolation(int n){
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        if ((long) n * n > Integer.MAX_VALUE / 4)
+            throw new IllegalArgumentException("n is too large");
+        this.n = n;
+        top = n * n;
+        bottom = n * n + 1;
+        open = new boolean[n * n];
+        // edge ids: 2*site to the right, 2*site+1 down, then top and bottom links
+        full = new DynamicConnectivity(n * n + 1, 2 * n * n + n);
+        span = new DynamicConnectivity(n * n + 2, 2 * n * n + 2 * n);
+    }
+
+    /**
+     * open site(row i, column j) if it is not open already
+     *
+     * @param i: row
+     * @param j: column
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public void open(int i, int j){
+        validate(i, j);
+        int site = (i-1) * n + (j-1);
+        if (open[site]) return;
+        open[site] = true;
+        if (j < n && open[site + 1]) insert(2 * site, site, site + 1);
+        if (j > 1 && open[site - 1]) insert(2 * (site - 1), site - 1, site);
+        if (i < n && open[site + n]) insert(2 * site + 1, site, site + n);
+        if (i > 1 && open[site - n]) insert(2 * (site - n) + 1, site - n, site);
+        if (i == 1) insert(2 * n * n + (j-1), top, site);
+        if (i == n) span.insert(2 * n * n + n + (j-1), bottom, site);
+    }
+
+    /**
+     * block site(row i, column j) again if it is open
+     *
+     * @param i: row
+     * @param j: column
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public void close(int i, int j){
+        validate(i, j);
+        int site = (i-1) * n + (j-1);
+        if (!open[site]) return;
+        open[site] = false;
+        if (j < n) delete(2 * site);
+        if (j > 1) delete(2 * (site - 1));
+        if (i < n) delete(2 * site + 1);
+        if (i > 1) delete(2 * (site - n) + 1);
+        if (i == 1) delete(2 * n * n + (j-1));
+        if (i == n) span.delete(2 * n * n + n + (j-1));
+    }
+
+    /**
+     * show whether site(row i, column j) is open
+     *
+     * @param i: row
+     * @param j: column
+     * @return Boolean value: true(open) or false(block)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isOpen(int i, int j){
+        validate(i, j);
+        return open[(i-1) * n + (j-1)];
+    }
+
+    /**
+     * show whether site(row i, column j) is full
+     *
+     * @param i: row
+     * @param j: column
+     * @return Boolean value: true(full) or false(not full)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isFull(int i, int j){
+        validate(i, j);
+        int site = (i-1) * n + (j-1);
+        return open[site] && full.connected(site, top);
+    }
+
+    /**
+     * show whether the system percolate
+     * @return Boolean value: true(percolates) or false(not percolates)
+     */
+    public boolean percolates() {
+        return span.connected(top, bottom);
+    }
+
+    private void insert(int e, int u, int v) {
+        full.insert(e, u, v);
+        span.insert(e, u, v);
+    }
+
+    private void delete(int e) {
+        full.delete(e);
+        span.delete(e);
+    }
+
+    private void validate(int i, int j) {
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+    }
+
+    public static void main(String[] args){
+        int n = Integer.parseInt(args[0]);
+        int operations = Integer.parseInt(args[1]);
+        SplittableRandom random = new SplittableRandom(1);
+
+        // random opens and closes near the threshold, checked against a rebuild
+        DynamicPercolation perc = new DynamicPercolation(n);
+        int wrong = 0;
+        for (int k = 0; k < operations; k++) {
+            int i = random.nextInt(n) + 1;
+            int j = random.nextInt(n) + 1;
+            if (random.nextDouble() < 0.6) perc.open(i, j);
+            else perc.close(i, j);
+            if (k % (operations / 10 + 1) == 0) {
+                Percolation check = new Percolation(n);
+                for (int x = 1; x <= n; x++)
+                    for (int y = 1; y <= n; y++)
+                        if (perc.isOpen(x, y)) check.open(x, y);
+                if (check.percolates() != perc.percolates()) wrong++;
+                for (int x = 1; x <= n; x++)
+                    for (int y = 1; y <= n; y++)
+                        if (check.isFull(x, y) != perc.isFull(x, y)) wrong++;
+            }
+        }
+        System.out.println(perc.percolates() ? "percolates" : "does not percolate");
+        System.out.println(wrong + " checks disagree with Percolation");
+    }
+}
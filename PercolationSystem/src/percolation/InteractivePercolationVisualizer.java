@@ -2,7 +2,7 @@ package percolation;
 /******************************************************************************
  *  Compilation:  javac InteractivePercolationVisualizer.java
  *  Execution:    java InteractivePercolationVisualizer n
- *  Dependencies: PercolationVisualizer.java Percolation.java
+ *  Dependencies: PercolationRenderer.java Percolation.java
  *                StdDraw.java StdOut.java
  *
  *  This program takes the grid size n as a command-line argument.
@@ -27,8 +27,7 @@ public class InteractivePercolationVisualizer {
 
         StdDraw.enableDoubleBuffering();
         Percolation perc = new Percolation(n);
-        PercolationVisualizer.draw(perc, n);
-        StdDraw.show();
+        PercolationRenderer renderer = new PercolationRenderer(perc, n, 1);
 
         while (true) {
 
@@ -48,12 +47,9 @@ public class InteractivePercolationVisualizer {
                     if (!perc.isOpen(i, j)) { 
                         StdOut.println(i + " " + j);
                     }
-                    perc.open(i, j);
+                    // redraws the sites that changed
+                    renderer.open(i, j);
                 }
-
-                // draw n-by-n percolation system
-                PercolationVisualizer.draw(perc, n);
-                StdDraw.show();
             }
 
             StdDraw.pause(20);
@@ -0,0 +1,73 @@
+package percolation;
+
+/*****************************************************************************
+ *  Compilation:    javac Lattice.java;
+ *  Execution:      none
+ *  Dependency:     none
+ *
+ *  Lattice is what PercolationStats needs from a percolation system: a fixed
+ *  number of elements (sites, or bonds for bond percolation) that are opened
+ *  one at a time by index until the system percolates. Each lattice is its
+ *  own kernel class with its neighbours written out in open(), so a trial
+ *  makes one call per element and the unions behind it are direct calls on
+ *  arrays; nothing is allocated after the constructor.
+ *
+ *  Type names the lattices PercolationStats can run trials on; PercolationTrial
+ *  builds the kernel class of each one itself.
+ *****************************************************************************/
+
+public interface Lattice {
+
+    /**
+     * number of elements a trial can open
+     * @return int value: number of sites, or of bonds for bond percolation
+     */
+    int elements();
+
+    /**
+     * open the element with the given index if it is not open already
+     *
+     * @param element: index from 0 to elements()-1
+     * @throws IndexOutOfBoundsException if element is outside that range
+     */
+    void open(int element);
+
+    /**
+     * show whether the system percolate
+     * @return Boolean value: true(percolates) or false(not percolates)
+     */
+    boolean percolates();
+
+    /**
+     * Type: the lattices, each with the number of elements of linear size n
+     */
+    enum Type {
+        SQUARE {         // n-by-n sites, four neighbours (Percolation)
+            public int elements(int n) { return checked(n, (long) n * n); }
+        },
+        CUBIC {          // n-by-n-by-n sites, six neighbours
+            public int elements(int n) { return checked(n, (long) n * n * n); }
+        },
+        TRIANGULAR {     // n-by-n sites, six neighbours
+            public int elements(int n) { return checked(n, (long) n * n); }
+        },
+        BOND {           // n-by-n sites, the bonds between them are opened
+            public int elements(int n) { return checked(n, 2L * n * (n - 1)); }
+        };
+
+        /**
+         * number of elements of a system of this lattice, without creating one
+         *
+         * @param n: linear size of the lattice
+         * @return int value: number of sites, or of bonds for bond percolation
+         * @throws IllegalArgumentException if(n <= 0) or the lattice is too large
+         */
+        public abstract int elements(int n);
+
+        private static int checked(int n, long elements) {
+            if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+            if (elements > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("n is too large");
+            return (int) elements;
+        }
+    }
+}
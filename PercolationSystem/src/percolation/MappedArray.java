@@ -0,0 +1,77 @@
+package percolation;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/*****************************************************************************
+ *  Compilation:    javac MappedArray.java;
+ *  Execution:      none
+ *  Dependency:     java.nio
+ *
+ *  MappedArray is a fixed-size array of longs or bytes that lives in a
+ *  memory-mapped file instead of the Java heap, indexed with a long. A single
+ *  mapping cannot exceed 2GB, so the file is mapped in 1GB chunks; 8-byte
+ *  elements are aligned and never straddle two chunks. The file is created
+ *  sparse, so every element starts as 0 without an initialization pass.
+ *****************************************************************************/
+
+class MappedArray {
+    private static final int CHUNK_BITS = 30;              // 1GB per mapping
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final File file;
+    private final ByteBuffer[] chunks;
+
+    /**
+     * constructor: map a new zero-filled file of the given size in bytes
+     *
+     * @param file: backing file, created or truncated
+     * @param bytes: size of the array in bytes
+     * @throws IOException if the file cannot be created or mapped
+     */
+    MappedArray(File file, long bytes) throws IOException {
+        this.file = file;
+        int count = (int) ((bytes + CHUNK_MASK) >>> CHUNK_BITS);
+        chunks = new ByteBuffer[count];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.setLength(bytes);
+            FileChannel channel = raf.getChannel();
+            for (int c = 0; c < count; c++) {
+                long position = (long) c << CHUNK_BITS;
+                long size = Math.min(1L << CHUNK_BITS, bytes - position);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, position, size)
+                                   .order(ByteOrder.nativeOrder());
+            }
+        }
+        // the mappings stay valid after the channel is closed
+    }
+
+    long getLong(long index) {
+        long position = index << 3;
+        return chunks[(int) (position >>> CHUNK_BITS)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    void putLong(long index, long value) {
+        long position = index << 3;
+        chunks[(int) (position >>> CHUNK_BITS)].putLong((int) (position & CHUNK_MASK), value);
+    }
+
+    byte get(long index) {
+        return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+    }
+
+    void put(long index, byte value) {
+        chunks[(int) (index >>> CHUNK_BITS)].put((int) (index & CHUNK_MASK), value);
+    }
+
+    /**
+     * remove the backing file; the array must not be used afterwards
+     */
+    void delete() {
+        if (!file.delete()) file.deleteOnExit();
+    }
+}
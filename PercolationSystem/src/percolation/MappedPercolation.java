@@ -0,0 +1,194 @@
+package percolation;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/*****************************************************************************
+ *  Compilation:    javac MappedPercolation.java;
+ *  Execution:      java MappedPercolation n;
+ *  Dependency:     MappedArray.java
+ *
+ *  MappedPercolation is a Percolation whose union-find and open states live
+ *  in memory-mapped files, for grids with more than 2^31 sites (n > 46340).
+ *  Every site index is a long, so n*n never overflows, and the Java heap
+ *  holds only a few dozen buffer handles no matter how large the grid is.
+ *
+ *  Like Percolation it keeps a single union-find (union by size, path
+ *  halving) whose roots carry "connected to top" and "connected to bottom"
+ *  flags. The parent file is encoded so that an all-zero file is an empty
+ *  grid and needs no initialization:
+ *
+ *      stored value v > 0     parent of the site is v - 1
+ *      stored value v <= 0    the site is a root of a cluster of 1 - v sites
+ *
+ *  The files cost 9 bytes per site. close() deletes them.
+ *****************************************************************************/
+
+public class MappedPercolation implements Closeable {
+    private static final byte OPEN = 1;   // site is open
+    private static final byte TOP = 2;    // cluster touches the first row
+    private static final byte BOTTOM = 4; // cluster touches the last row
+
+    private final int n;               // number of rows in the grid
+    private final MappedArray parent;  // encoded parent link or cluster size
+    private final MappedArray state;   // OPEN for every site, TOP/BOTTOM valid at roots
+    private boolean percolates;        // some cluster touches both top and bottom
+
+    /**
+     * constructor: create n-by-n grid, with all sites blocked, backed by
+     * temporary files in java.io.tmpdir
+     *
+     * @param n: number of rows in the grid
+     * @throws IllegalArgumentException if(n <=0)
+     * @throws IOException if the backing files cannot be created
+     */
+    public MappedPercolation(int n) throws IOException {
+        this(n, new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * constructor: create n-by-n grid, with all sites blocked, backed by
+     * temporary files in the given directory
+     *
+     * @param n: number of rows in the grid
+     * @param dir: directory for the backing files
+     * @throws IllegalArgumentException if(n <=0)
+     * @throws IOException if the backing files cannot be created
+     */
+    public MappedPercolation(int n, File dir) throws IOException {
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        this.n = n;
+        long sites = (long) n * n;
+        File parentFile = File.createTempFile("percolation-parent", ".bin", dir);
+        File stateFile = null;
+        try {
+            stateFile = File.createTempFile("percolation-state", ".bin", dir);
+            parent = new MappedArray(parentFile, sites * 8);
+            state = new MappedArray(stateFile, sites);
+        } catch (IOException | RuntimeException | Error e) {
+            // do not leave the files behind when a later step fails
+            if (!parentFile.delete()) parentFile.deleteOnExit();
+            if (stateFile != null && !stateFile.delete()) stateFile.deleteOnExit();
+            throw e;
+        }
+    }
+
+    /**
+     * open site(row i, column j) if it is not open already
+     * if its up or down or left or right site is also open, union them
+     *
+     * @param i: row
+     * @param j: column
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public void open(int i, int j){
+        if (j < 1||i < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+
+        long site = (long) (i-1) * n + (j-1);
+        if (state.get(site) != 0) return;
+
+        byte flags = OPEN;
+        if (i == 1) flags |= TOP;
+        if (i == n) flags |= BOTTOM;
+        state.put(site, flags);
+
+        if (i > 1 && state.get(site - n) != 0) union(site, site - n);
+        if (i < n && state.get(site + n) != 0) union(site, site + n);
+        if (j > 1 && state.get(site - 1) != 0) union(site, site - 1);
+        if (j < n && state.get(site + 1) != 0) union(site, site + 1);
+
+        if ((state.get(find(site)) & (TOP | BOTTOM)) == (TOP | BOTTOM)) percolates = true;
+    }
+
+    /**
+     * show whether site(row i, column j) is open
+     *
+     * @param i: row
+     * @param j: column
+     * @return Boolean value: true(open) or false(block)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isOpen(int i, int j){
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        return state.get((long) (i-1) * n + (j-1)) != 0;
+    }
+
+    /**
+     * show whether site(row i, column j) is full
+     *
+     * @param i: row
+     * @param j: column
+     * @return Boolean value: true(full) or false(not full)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isFull(int i, int j){
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        return (state.get(find((long) (i-1) * n + (j-1))) & TOP) != 0;
+    }
+
+    /**
+     * show whether the system percolate
+     * @return Boolean value: true(percolates) or false(not percolates)
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * delete the backing files; the grid must not be used afterwards
+     */
+    public void close() {
+        parent.delete();
+        state.delete();
+    }
+
+    // root of site p, halving the path on the way up
+    private long find(long p) {
+        long v = parent.getLong(p);
+        while (v > 0) {
+            long q = v - 1;
+            long w = parent.getLong(q);
+            if (w <= 0) return q;
+            parent.putLong(p, w);  // point p at its grandparent
+            p = w - 1;
+            v = parent.getLong(p);
+        }
+        return p;
+    }
+
+    // link the smaller cluster under the larger one and merge the root flags
+    private void union(long p, long q) {
+        long rootP = find(p);
+        long rootQ = find(q);
+        if (rootP == rootQ) return;
+        long sizeP = 1 - parent.getLong(rootP);
+        long sizeQ = 1 - parent.getLong(rootQ);
+        if (sizeP < sizeQ) {
+            long t = rootP; rootP = rootQ; rootQ = t;
+        }
+        parent.putLong(rootP, 1 - (sizeP + sizeQ));
+        parent.putLong(rootQ, rootP + 1);
+        state.put(rootP, (byte) (state.get(rootP) | state.get(rootQ)));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int n = Integer.parseInt(args[0]);
+        SplittableRandom random = new SplittableRandom();
+        long opened = 0;
+        try (MappedPercolation perc = new MappedPercolation(n)) {
+            while (!perc.percolates()) {
+                int i = random.nextInt(n) + 1;
+                int j = random.nextInt(n) + 1;
+                if (!perc.isOpen(i, j)) {
+                    perc.open(i, j);
+                    opened++;
+                }
+            }
+        }
+        System.out.println(opened + " open sites, fraction " + opened / ((double) n * n));
+    }
+}
@@ -1,42 +1,80 @@
 package percolation;
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+import java.util.Arrays;
 
 /*****************************************************************************
  *  Author:         Yan Xu
  *  Written:        9/7/2016
- *  Last updated:   9/10/2016
+ *  Last updated:   10/17/2026
  *
  *  Compilation:    javac Percolation.java;
  *  Execution:      java Percolation;
- *  Dependency:     QuickFindUF.java
+ *  Dependency:     UnionFind.java
  *
  *  Percolation models a percolation system. It will create a n-by-n grid and
  *  show whether the system percolate or not.
+ *
+ *  The grid keeps one byte of state per site and a single union-find over the
+ *  n*n sites. Every root carries a "connected to top" and a "connected to
+ *  bottom" flag, so isFull() and percolates() are answered from the same
+ *  structure and there is no backwash (no virtual bottom site is ever linked
+ *  to the top).
+ *
+ *  The union-find is UnionFind.Halving (union by size, path halving), held
+ *  as that final class rather than as a UnionFind, so every find and union
+ *  is a direct call. Inside the package a grid can be built on any other
+ *  UnionFind; only such grids go through the interface, so that
+ *  UnionFindBenchmark can compare the strategies on this very class.
+ *
+ *  With -Dpercolation.metrics=true every grid counts its opens, unions and
+ *  finds (see PercolationMetrics); otherwise the counting code is compiled
+ *  away.
  *****************************************************************************/
 
-public class Percolation{
-    private WeightedQuickUnionUF g; // Percolation data type using quick find algorithm
-    private WeightedQuickUnionUF gplus;
-    private Boolean[][] grid = null; // grid with each site open(True) or close(False)
-    private int n = 0; // number of rows in the grid
+public class Percolation implements Lattice {
+    private static final byte OPEN = 1;   // site is open
+    private static final byte TOP = 2;    // cluster touches the first row
+    private static final byte BOTTOM = 4; // cluster touches the last row
+
+    private final int n;          // number of rows in the grid
+    private final UnionFind.Halving halving;   // clusters of sites, by default
+    private final UnionFind uf;                // or any other union-find, null if halving
+    private final byte[] state;   // OPEN for every site, TOP/BOTTOM valid at roots
+    private boolean percolates;   // some cluster touches both top and bottom
+    private final PercolationMetrics.Counters counters =  // null unless instrumented
+            PercolationMetrics.ENABLED ? new PercolationMetrics.Counters() : null;
 
     /**
      * constructor: create n-by-n grid, with all sites blocked
      *
      * @param n: number of rows in the grid
-     * @throws IllegalArgumentException if(n <=0)
+     * @throws IllegalArgumentException if(n <=0) or n*n sites do not fit in an array
      */
     public Percolation(int n){
-        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
-        grid = new Boolean[n][n];
-        for (int i = 0; i < n; i++)
-            for (int j = 0; j < n; j++)
-                grid[i][j] = false; // every site is blocked
+        this(n, new UnionFind.Halving(checkSize(n)));
+    }
+
+    /**
+     * constructor: create n-by-n grid, with all sites blocked, on the given union-find;
+     * a UnionFind.Halving is called directly, like the default one
+     *
+     * @param n: number of rows in the grid
+     * @param uf: a fresh union-find over n*n sites, every site in its own set
+     * @throws IllegalArgumentException if(n <=0) or uf does not have n*n sites
+     */
+    Percolation(int n, UnionFind uf){
+        checkSize(n);
+        if (uf.sites() != n * n) throw new IllegalArgumentException("uf should have n*n sites");
         this.n = n;
-        // Create a union-find data structure with n*n from 1 to n*n
-        // Also create a top(0) and bottom(n*n+1) position
-        g = new WeightedQuickUnionUF(n * n + 2);
-        gplus = new WeightedQuickUnionUF(n * n + 1);
+        halving = uf instanceof UnionFind.Halving ? (UnionFind.Halving) uf : null;
+        this.uf = halving == null ? uf : null;
+        state = new byte[n * n];
+    }
+
+    private static int checkSize(int n) {
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        if ((long) n * n > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("n is too large");
+        return n * n;
     }
 
     /**
@@ -45,46 +83,126 @@ public class Percolation{
      *
      * @param i: row
      * @param j: column
-     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (0,0) to (N-1,N-1)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
      */
     public void open(int i, int j){
         if (j < 1||i < 1||i > n||j > n)
             throw new IndexOutOfBoundsException("index out of bounds");
 
-        grid[i-1][j-1] = true;
+        openSite((i-1) * n + (j-1));
+    }
 
-        // if it is in the first row, union it to the top
-        if ((i-1) == 0) {
-            g.union((i-1) * n + (j-1) + 1, 0);
-            gplus.union((i-1) * n + (j-1) + 1, 0);
-        }
+    /**
+     * open the site with the given 0-based linear index (row-major)
+     *
+     * @param site: (i-1) * n + (j-1)
+     * @throws IndexOutOfBoundsException if site is outside 0 .. n*n-1
+     */
+    public void open(int site){
+        if (site < 0 || site >= state.length)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        openSite(site);
+    }
 
-        // for the last row site, union it to the bottom
-        if ((i-1) == n - 1) g.union((i-1) * n + j-1 + 1, n * n + 1);
+    /**
+     * number of sites, n*n
+     */
+    public int elements(){
+        return state.length;
+    }
 
-        // if its up site is open, union them.
-        if ((i-1) > 0 && grid[i-1 - 1][j-1]) {
-            g.union((i-1) * n + j-1 + 1, (i-1 - 1) * n + j-1 + 1);
-            gplus.union((i-1) * n + j-1 + 1, (i-1 - 1) * n + j-1 + 1);
+    private void openSite(int site){
+        if (state[site] != 0) {
+            if (PercolationMetrics.ENABLED) counters.repeatedOpens++;
+            return;
         }
+        if (PercolationMetrics.ENABLED) counters.opens++;
+        int i = site / n + 1;
+        int j = site - (i-1) * n + 1;
 
-        // if its down site is open, union them.
-        if ((i-1) < n - 1 && grid[i-1 + 1][j-1]) {
-            g.union((i-1 + 1) * n + j-1 + 1, (i-1) * n + (j-1) + 1);
-            gplus.union((i-1 + 1) * n + j-1 + 1, (i-1) * n + (j-1) + 1);
-        }
+        byte flags = OPEN;
+        if (i == 1) flags |= TOP;
+        if (i == n) flags |= BOTTOM;
+        state[site] = flags;
 
-        // if its left site is open, union them.
-        if ((j-1) > 0 && grid[i-1][j-1 - 1]) {
-            g.union((i-1) * n + (j-1) + 1, (i-1) * n + (j-1));
-            gplus.union((i-1) * n + j-1 + 1, (i-1) * n + j-1);
+        // union with every open neighbour; the flags follow the surviving root
+        if (i > 1 && state[site - n] != 0) union(site, site - n);
+        if (i < n && state[site + n] != 0) union(site, site + n);
+        if (j > 1 && state[site - 1] != 0) union(site, site - 1);
+        if (j < n && state[site + 1] != 0) union(site, site + 1);
+
+        if ((state[find(site)] & (TOP | BOTTOM)) == (TOP | BOTTOM)) percolates = true;
+    }
+
+    /**
+     * open a batch of sites (row rows[k], column cols[k]); the whole batch is
+     * checked before any site is opened, then the sites are opened in row-major
+     * order, which visits the arrays sequentially
+     *
+     * @param rows: rows of the sites
+     * @param cols: columns of the sites
+     * @return Boolean value: whether the system percolates afterwards
+     * @throws IllegalArgumentException if rows and cols differ in length
+     * @throws IndexOutOfBoundsException if a site is outside the range from (1,1) to (n,n);
+     *         no site is opened then
+     */
+    public boolean openAll(int[] rows, int[] cols){
+        if (rows.length != cols.length)
+            throw new IllegalArgumentException("rows and cols should have the same length");
+        int[] sites = new int[rows.length];
+        for (int k = 0; k < rows.length; k++) {
+            int i = rows[k], j = cols[k];
+            if (i < 1||j < 1||i > n||j > n)
+                throw new IndexOutOfBoundsException("index out of bounds");
+            sites[k] = (i-1) * n + (j-1);
         }
+        Arrays.sort(sites);
+        for (int site : sites) openSite(site);
+        return percolates;
+    }
 
-        // if its right site is open, union them.
-        if ((j-1) < n - 1 && grid[i-1][j-1 + 1]) {
-            g.union((i-1) * n + j-1 + 1, (i-1) * n + j-1 + 2);
-            gplus.union((i-1) * n + j-1 + 1, (i-1) * n + j-1 + 2);
+    /**
+     * open a batch of sites given by linear index (i-1) * n + (j-1); the whole
+     * batch is checked before any site is opened, then the sites are opened in
+     * row-major order
+     *
+     * @param sites: linear indices of the sites, not modified
+     * @return Boolean value: whether the system percolates afterwards
+     * @throws IndexOutOfBoundsException if a site is outside 0 .. n*n-1; no site is opened then
+     */
+    public boolean openAll(int[] sites){
+        validate(sites);
+        int[] sorted = sites.clone();
+        Arrays.sort(sorted);
+        for (int site : sorted) openSite(site);
+        return percolates;
+    }
+
+    /**
+     * open a batch of sites given by linear index in the given order, stopping
+     * as soon as the system percolates
+     *
+     * @param sites: linear indices (i-1) * n + (j-1) of the sites
+     * @return int value: index k such that opening sites[0..k] made the system
+     *         percolate, or -1 if it does not (every site is then open, also when
+     *         the system already percolated before the call)
+     * @throws IndexOutOfBoundsException if a site is outside 0 .. n*n-1; no site is opened then
+     */
+    public int openUntilPercolates(int[] sites){
+        validate(sites);
+        boolean before = percolates;
+        for (int k = 0; k < sites.length; k++) {
+            openSite(sites[k]);
+            if (percolates && !before) return k;
         }
+        return -1;
+    }
+
+    private void validate(int[] sites) {
+        int size = n * n;
+        for (int site : sites)
+            if (site < 0 || site >= size)
+                throw new IndexOutOfBoundsException("index out of bounds");
     }
 
     /**
@@ -93,12 +211,12 @@ public class Percolation{
      * @param i: row
      * @param j: column
      * @return Boolean value: true(open) or false(block)
-     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (0,0) to (N-1,N-1)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
      */
     public boolean isOpen(int i, int j){
         if (i < 1||j < 1||i > n||j > n)
             throw new IndexOutOfBoundsException("index out of bounds");
-        return grid[i-1][j-1];
+        return state[(i-1) * n + (j-1)] != 0;
     }
 
     /**
@@ -107,25 +225,72 @@ public class Percolation{
      * @param x: row
      * @param y: column
      * @return Boolean value: true(full) or false(not full)
-     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (0,0) to (N-1,N-1)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
      */
     public boolean isFull(int x, int y){
         if (x < 1 || y < 1 || x > n || y > n )
             throw new IndexOutOfBoundsException("index out of bounds");
-        // if the site is connected to its up,down,left or right, then it is full;
-
-        if (gplus.connected((x-1) * n + y-1 + 1, 0)) return true;
-        return false;
-
+        int site = (x-1) * n + (y-1);
+        // a blocked site is its own root with no TOP flag
+        return (state[find(site)] & TOP) != 0;
     }
 
     /**
      * show whether the system percolate
-     * @return Boolean value: true(full) or false(not full)
-     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (0,0) to (N-1,N-1)
+     * @return Boolean value: true(percolates) or false(not percolates)
      */
     public boolean percolates() {
-        // if the top and bottom connected then it percolates
-        return g.connected(0, n * n + 1);
+        return percolates;
+    }
+
+    /**
+     * counters of this grid
+     * @return snapshot of the counters, all 0 unless PercolationMetrics.ENABLED
+     */
+    public PercolationMetrics metrics(){
+        return new PercolationMetrics(counters == null ? new PercolationMetrics.Counters() : counters);
+    }
+
+    // the live counters, null unless PercolationMetrics.ENABLED
+    PercolationMetrics.Counters counters() {
+        return counters;
+    }
+
+    /**
+     * number of rows in the grid
+     */
+    int size() {
+        return n;
+    }
+
+    /**
+     * number of sites in the cluster of the site with the given linear index
+     * (1 for a blocked site)
+     *
+     * @param site: (i-1) * n + (j-1)
+     */
+    int clusterSize(int site) {
+        return halving != null ? halving.size(site) : uf.size(site);
+    }
+
+    // merge the clusters of p and q; the merged root gets the flags of both
+    private void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return;
+        if (PercolationMetrics.ENABLED) counters.unions++;
+        byte flags = (byte) (state[rootP] | state[rootQ]);
+        state[halving != null ? halving.union(rootP, rootQ) : uf.union(rootP, rootQ)] = flags;
+    }
+
+    // root of site, counting the links to it first when instrumented
+    private int find(int site) {
+        if (PercolationMetrics.ENABLED) {
+            int path = 0;
+            UnionFind forest = halving != null ? halving : uf;
+            for (int p = site, q; (q = forest.parent(p)) != p; p = q) path++;
+            counters.find(path);
+        }
+        return halving != null ? halving.find(site) : uf.find(site);
     }
 }
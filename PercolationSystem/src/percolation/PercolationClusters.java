@@ -0,0 +1,244 @@
+package percolation;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+/*****************************************************************************
+ *  Compilation:    javac PercolationClusters.java;
+ *  Execution:      java PercolationClusters n p seed;
+ *  Dependency:     none
+ *
+ *  PercolationClusters answers "does this grid percolate, how many clusters
+ *  does it have and how large is the biggest one" for a whole occupancy
+ *  pattern at once, instead of through n*n calls to Percolation.open().
+ *
+ *  It is a Hoshen-Kopelman raster scan that keeps only one row of labels.
+ *  Every open site takes the label of its open left or up neighbour (merging
+ *  the two if both are open) or a new label. At the end of each row the
+ *  labels still present in the row are renumbered 0, 1, 2, ...; a cluster of
+ *  the previous row whose label no longer appears is finished and is counted.
+ *  A row holds at most (n + 1) / 2 clusters, so the union-find over labels
+ *  and every other buffer has O(n) entries. Each label carries its cluster
+ *  size and whether the cluster reaches the first row; the grid percolates
+ *  if a cluster in the last row reaches the first.
+ *
+ *  Sizes and counts are longs: with a density and a seed the grid is
+ *  generated row by row and never stored, so n*n may exceed 2^31.
+ *****************************************************************************/
+
+public class PercolationClusters {
+    private final boolean percolates;  // some cluster spans first to last row
+    private final long clusters;       // number of clusters of open sites
+    private final long largest;        // number of sites in the largest cluster
+
+    /**
+     * constructor: label the clusters of an n-by-n grid with the given open sites
+     *
+     * @param n: number of rows in the grid
+     * @param open: open sites, bit (i-1) * n + (j-1) for site (i, j)
+     * @throws IllegalArgumentException if(n <= 0) or n*n sites do not fit in a BitSet
+     */
+    public PercolationClusters(int n, BitSet open){
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        if ((long) n * n > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("n is too large");
+        Scan scan = new Scan(n);
+        boolean[] row = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) row[j] = open.get(i * n + j);
+            scan.add(row);
+        }
+        percolates = scan.percolates;
+        clusters = scan.clusters;
+        largest = scan.largest;
+    }
+
+    /**
+     * constructor: label the clusters of a random n-by-n grid in which each
+     * site is open with probability p; rows are generated as they are scanned
+     *
+     * @param n: number of rows in the grid
+     * @param p: probability that a site is open
+     * @param seed: seed of the random stream
+     * @throws IllegalArgumentException if(n <= 0 or p is outside [0, 1])
+     */
+    public PercolationClusters(int n, double p, long seed){
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        if (!(p >= 0.0 && p <= 1.0)) throw new IllegalArgumentException("p should be in [0, 1]");
+        SplittableRandom random = new SplittableRandom(seed);
+        Scan scan = new Scan(n);
+        boolean[] row = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) row[j] = random.nextDouble() < p;
+            scan.add(row);
+        }
+        percolates = scan.percolates;
+        clusters = scan.clusters;
+        largest = scan.largest;
+    }
+
+    /**
+     * show whether the system percolate
+     * @return Boolean value: true(percolates) or false(not percolates)
+     */
+    public boolean percolates(){
+        return percolates;
+    }
+
+    /**
+     * number of clusters of open sites
+     * @return long value: number of clusters
+     */
+    public long numberOfClusters(){
+        return clusters;
+    }
+
+    /**
+     * size of the largest cluster
+     * @return long value: number of sites in the largest cluster, 0 if none is open
+     */
+    public long largestCluster(){
+        return largest;
+    }
+
+    // the row-by-row scan; labels are renumbered after every row
+    private static class Scan {
+        private final int n;
+        private int rows = 0;              // rows scanned so far
+        private int labels = 0;            // labels carried over from the previous row
+        private int[] previous;            // label of each site in the previous row, -1 if blocked
+        private int[] current;             // label of each site in this row, -1 if blocked
+        private final int[] parent;        // union-find over the labels of two rows
+        private final long[] size;         // cluster size, valid at roots
+        private final boolean[] top;       // cluster reaches the first row, valid at roots
+        private final int[] renumber;      // new label of each root, -1 if not seen yet
+        private final long[] nextSize;
+        private final boolean[] nextTop;
+
+        private boolean percolates = false;
+        private long clusters = 0;
+        private long largest = 0;
+
+        Scan(int n) {
+            this.n = n;
+            int capacity = n + 2;          // (n + 1) / 2 labels from each of two rows
+            previous = new int[n];
+            current = new int[n];
+            parent = new int[capacity];
+            size = new long[capacity];
+            top = new boolean[capacity];
+            renumber = new int[capacity];
+            nextSize = new long[capacity];
+            nextTop = new boolean[capacity];
+        }
+
+        // label the next row of the grid
+        void add(boolean[] row) {
+            boolean first = rows == 0;
+            boolean last = rows == n - 1;
+            int next = labels;
+            for (int j = 0; j < n; j++) {
+                if (!row[j]) {
+                    current[j] = -1;
+                    continue;
+                }
+                int left = j > 0 ? current[j - 1] : -1;
+                int up = first ? -1 : previous[j];
+                int label;
+                if (left < 0 && up < 0) {
+                    label = next++;
+                    parent[label] = label;
+                    size[label] = 0;
+                    top[label] = first;
+                }
+                else if (up < 0) label = left;
+                else if (left < 0) label = up;
+                else label = union(left, up);
+                current[j] = label;
+                size[find(label)]++;
+            }
+
+            // renumber the clusters that reach this row
+            for (int l = 0; l < next; l++) renumber[l] = -1;
+            int count = 0;
+            for (int j = 0; j < n; j++) {
+                if (current[j] < 0) continue;
+                int root = find(current[j]);
+                if (renumber[root] < 0) {
+                    renumber[root] = count;
+                    nextSize[count] = size[root];
+                    nextTop[count] = top[root];
+                    count++;
+                }
+                current[j] = renumber[root];
+            }
+
+            // clusters of the previous row that did not reach this one are finished
+            for (int l = 0; l < labels; l++) {
+                int root = find(l);
+                if (renumber[root] == -1) {
+                    renumber[root] = -2;
+                    finish(size[root]);
+                }
+            }
+
+            for (int l = 0; l < count; l++) {
+                parent[l] = l;
+                size[l] = nextSize[l];
+                top[l] = nextTop[l];
+            }
+            labels = count;
+            int[] t = previous; previous = current; current = t;
+            rows++;
+
+            // every cluster left in the last row touches the bottom
+            if (last) {
+                for (int l = 0; l < labels; l++) {
+                    if (top[l]) percolates = true;
+                    finish(size[l]);
+                }
+                labels = 0;
+            }
+        }
+
+        private void finish(long clusterSize) {
+            clusters++;
+            if (clusterSize > largest) largest = clusterSize;
+        }
+
+        private int find(int p) {
+            while (parent[p] != p) {
+                parent[p] = parent[parent[p]];
+                p = parent[p];
+            }
+            return p;
+        }
+
+        private int union(int p, int q) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) return rootP;
+            if (size[rootP] < size[rootQ]) {
+                int t = rootP; rootP = rootQ; rootQ = t;
+            }
+            parent[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+            top[rootP] |= top[rootQ];
+            return rootP;
+        }
+    }
+
+    public static void main(String[] args){
+        int n = Integer.parseInt(args[0]);
+        double p = Double.parseDouble(args[1]);
+        long seed = Long.parseLong(args[2]);
+
+        Stopwatch time = new Stopwatch();
+        PercolationClusters grid = new PercolationClusters(n, p, seed);
+        System.out.println("% java PercolationClusters " + n + " " + p + " " + seed);
+        System.out.println(grid.percolates() ? "percolates" : "does not percolate");
+        System.out.println("clusters                = " + grid.numberOfClusters());
+        System.out.println("largest cluster         = " + grid.largestCluster());
+        System.out.println("total running time" + time.elapsedTime());
+    }
+}
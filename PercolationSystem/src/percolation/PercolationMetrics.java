@@ -0,0 +1,109 @@
+package percolation;
+
+/*****************************************************************************
+ *  Compilation:    javac PercolationMetrics.java;
+ *  Execution:      none
+ *  Dependency:     none
+ *
+ *  PercolationMetrics is a snapshot of the counters kept by Percolation and
+ *  PercolationStats when instrumentation is on:
+ *
+ *      opens           sites opened
+ *      repeatedOpens   open() calls on a site that was already open (the
+ *                      rejected draws of a sampler picking random (i, j))
+ *      unions          unions that merged two clusters
+ *      finds           root lookups, with the average and largest number of
+ *                      links followed from the site to its root
+ *      draws           random numbers drawn by PercolationStats trials
+ *      trials          trials run, with their total and largest wall time
+ *
+ *  Instrumentation is switched on with -Dpercolation.metrics=true. ENABLED is
+ *  a static final constant, so when it is off the JIT removes every counting
+ *  branch and the counters cost nothing. With it on, each trial is also sent
+ *  to Java Flight Recorder as a percolation.Trial event (see TrialEvent).
+ *****************************************************************************/
+
+public final class PercolationMetrics {
+    /** whether Percolation and PercolationStats count anything */
+    public static final boolean ENABLED = Boolean.getBoolean("percolation.metrics");
+
+    private final long opens, repeatedOpens, unions, finds, findPath, draws;
+    private final int maxFindPath;
+    private final long trials, trialNanos, maxTrialNanos;
+
+    PercolationMetrics(Counters c) {
+        opens = c.opens;
+        repeatedOpens = c.repeatedOpens;
+        unions = c.unions;
+        finds = c.finds;
+        findPath = c.findPath;
+        maxFindPath = c.maxFindPath;
+        draws = c.draws;
+        trials = c.trials;
+        trialNanos = c.trialNanos;
+        maxTrialNanos = c.maxTrialNanos;
+    }
+
+    public long opens()            { return opens; }
+    public long repeatedOpens()    { return repeatedOpens; }
+    public long unions()           { return unions; }
+    public long finds()            { return finds; }
+    public int maxFindPath()       { return maxFindPath; }
+    public long draws()            { return draws; }
+    public long trials()           { return trials; }
+    public long trialNanos()       { return trialNanos; }
+    public long maxTrialNanos()    { return maxTrialNanos; }
+
+    /**
+     * average number of links followed by a find
+     * @return double value: 0 if there was no find
+     */
+    public double averageFindPath(){
+        return finds == 0 ? 0.0 : findPath / (double) finds;
+    }
+
+    @Override
+    public String toString(){
+        return "opens                   = " + opens + "\n"
+             + "repeated opens          = " + repeatedOpens + "\n"
+             + "unions                  = " + unions + "\n"
+             + "finds                   = " + finds + "\n"
+             + "find path (avg, max)    = " + averageFindPath() + ", " + maxFindPath + "\n"
+             + "random draws            = " + draws + "\n"
+             + "trials                  = " + trials + "\n"
+             + "trial time (avg, max)   = " + (trials == 0 ? 0.0 : trialNanos / 1e6 / trials)
+             + "ms, " + maxTrialNanos / 1e6 + "ms";
+    }
+
+    // the mutable counters behind a snapshot; one per grid or per thread, not thread-safe
+    static final class Counters {
+        long opens, repeatedOpens, unions, finds, findPath, draws;
+        int maxFindPath;
+        long trials, trialNanos, maxTrialNanos;
+
+        void find(int path) {
+            finds++;
+            findPath += path;
+            if (path > maxFindPath) maxFindPath = path;
+        }
+
+        void trial(long nanos) {
+            trials++;
+            trialNanos += nanos;
+            if (nanos > maxTrialNanos) maxTrialNanos = nanos;
+        }
+
+        void add(Counters c) {
+            opens += c.opens;
+            repeatedOpens += c.repeatedOpens;
+            unions += c.unions;
+            finds += c.finds;
+            findPath += c.findPath;
+            maxFindPath = Math.max(maxFindPath, c.maxFindPath);
+            draws += c.draws;
+            trials += c.trials;
+            trialNanos += c.trialNanos;
+            maxTrialNanos = Math.max(maxTrialNanos, c.maxTrialNanos);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac PercolationRenderer.java
+ *  Execution:    none
+ *  Dependencies: Percolation.java StdDraw.java
+ *
+ *  PercolationRenderer draws a percolation system incrementally. The picture
+ *  stays in StdDraw's offscreen buffer between frames (it is never cleared),
+ *  so after each open only the sites whose colour changed are painted again:
+ *
+ *    - the opened site turns white, or light blue if it is full;
+ *    - if it is full, every open site of its cluster that was not full yet
+ *      turns light blue too. They are found by a flood fill from the opened
+ *      site over open sites not yet painted full, so each site is painted
+ *      full at most once and a whole trace costs O(n^2) squares in total,
+ *      instead of n^2 squares and n^2 isFull() queries per open.
+ *
+ *  The buffer is copied to the screen only every frameSkip opens (and when
+ *  the system starts to percolate), which is what makes large traces replay
+ *  in seconds; show() forces a frame.
+ *
+ ******************************************************************************/
+
+import java.awt.Font;
+
+import edu.princeton.cs.algs4.StdDraw;
+
+public class PercolationRenderer {
+    private static final byte BLOCKED = 0, OPEN = 1, FULL = 2;
+
+    private final Percolation perc;
+    private final int n;
+    private final byte[] shown;      // colour each site has on the canvas
+    private final int[] stack;       // flood fill
+    private final int frameSkip;     // opens between two frames
+    private int opened = 0;
+    private int pending = 0;         // opens since the last frame
+    private boolean percolates = false;
+
+    /**
+     * constructor: draw the n-by-n system, which must have no open site yet
+     *
+     * @param perc: the percolation system that open(i, j) will update
+     * @param n: number of rows in the grid
+     * @param frameSkip: number of opens between two frames shown on the screen
+     * @throws IllegalArgumentException if(frameSkip <= 0)
+     */
+    public PercolationRenderer(Percolation perc, int n, int frameSkip) {
+        if (frameSkip <= 0) throw new IllegalArgumentException("frameSkip should be larger than 0");
+        this.perc = perc;
+        this.n = n;
+        this.frameSkip = frameSkip;
+        shown = new byte[n * n];
+        stack = new int[n * n];
+
+        StdDraw.clear();
+        StdDraw.setXscale(-0.05*n, 1.05*n);
+        StdDraw.setYscale(-0.05*n, 1.05*n);   // leave a border to write text
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.filledSquare(n/2.0, n/2.0, n/2.0);
+        for (int row = 1; row <= n; row++)
+            for (int col = 1; col <= n; col++)
+                paint(row, col, BLOCKED);
+        status();
+        StdDraw.show();
+    }
+
+    /**
+     * open site(row i, column j) in the system and repaint the sites that changed
+     *
+     * @param i: row
+     * @param j: column
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public void open(int i, int j) {
+        if (perc.isOpen(i, j)) return;
+        perc.open(i, j);
+        opened++;
+        if (perc.isFull(i, j)) fill(i, j);
+        else {
+            shown[(i-1) * n + (j-1)] = OPEN;
+            paint(i, j, OPEN);
+        }
+
+        pending++;
+        boolean changed = perc.percolates() != percolates;
+        percolates = perc.percolates();
+        if (changed || pending >= frameSkip) show();
+    }
+
+    /**
+     * update the status text and copy the picture to the screen
+     */
+    public void show() {
+        status();
+        StdDraw.show();
+        pending = 0;
+    }
+
+    // paint full every open site connected to (i, j) that is not painted full yet
+    private void fill(int i, int j) {
+        int top = 0;
+        int start = (i-1) * n + (j-1);
+        shown[start] = FULL;
+        stack[top++] = start;
+        while (top > 0) {
+            int site = stack[--top];
+            int row = site / n + 1, col = site % n + 1;
+            paint(row, col, FULL);
+            if (row > 1) top = push(site - n, row - 1, col, top);
+            if (row < n) top = push(site + n, row + 1, col, top);
+            if (col > 1) top = push(site - 1, row, col - 1, top);
+            if (col < n) top = push(site + 1, row, col + 1, top);
+        }
+    }
+
+    private int push(int site, int row, int col, int top) {
+        if (shown[site] != FULL && perc.isOpen(row, col)) {
+            shown[site] = FULL;
+            stack[top++] = site;
+        }
+        return top;
+    }
+
+    private void paint(int row, int col, byte colour) {
+        if (colour == FULL)      StdDraw.setPenColor(StdDraw.BOOK_LIGHT_BLUE);
+        else if (colour == OPEN) StdDraw.setPenColor(StdDraw.WHITE);
+        else                     StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.filledSquare(col - 0.5, n - row + 0.5, 0.45);
+    }
+
+    // rewrite the status text below the grid
+    private void status() {
+        StdDraw.setPenColor(StdDraw.WHITE);
+        StdDraw.filledRectangle(n/2.0, -0.025*n, 0.55*n, 0.025*n);
+        StdDraw.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.text(0.25*n, -0.025*n, opened + " open sites");
+        if (percolates) StdDraw.text(0.75*n, -0.025*n, "percolates");
+        else            StdDraw.text(0.75*n, -0.025*n, "does not percolate");
+    }
+}
@@ -0,0 +1,304 @@
+package percolation;
+import java.util.Arrays;
+
+/*****************************************************************************
+ *  Compilation:    javac PercolationScenario.java;
+ *  Execution:      none
+ *  Dependency:     none
+ *
+ *  PercolationScenario answers percolation questions about a whole script of
+ *  opens and closes at once (offline). The script is recorded first:
+ *
+ *      PercolationScenario s = new PercolationScenario(n);
+ *      s.open(1, 1); s.open(2, 1);
+ *      int q0 = s.percolates();          // index of this question
+ *      s.close(1, 1);
+ *      int q1 = s.isFull(2, 1);
+ *      boolean[] answer = s.answers();   // answer[q0], answer[q1]
+ *
+ *  Every edge between two open sites (and between an open site and the top
+ *  or bottom) is alive during one interval of the script. The intervals are
+ *  stored in a segment tree over the questions; a depth-first walk of the
+ *  tree adds the edges of a node to a union-find when it enters the node and
+ *  undoes them when it leaves, so each leaf sees exactly the edges alive at
+ *  its question. The union-find links by size without path compression,
+ *  which makes every union O(log n) and undoable. With m edge intervals and
+ *  q questions the whole script costs O((m log q + q) log n).
+ *
+ *  As in DynamicPercolation there are two union-finds, with and without the
+ *  virtual bottom site, so isFull() has no backwash.
+ *****************************************************************************/
+
+public class PercolationScenario {
+    private static final int OPEN = 0, CLOSE = 1, PERCOLATES = 2, FULL = 3;
+
+    private final int n;                 // number of rows in the grid
+    private final int top, bottom;       // virtual sites
+    private final boolean[] open;        // open sites after the last recorded step
+    private final int[] born;            // step at which each edge appeared, -1 if absent
+
+    private int steps = 0;               // recorded steps
+    private int questions = 0;           // recorded questions
+    private int[] kind = new int[16];    // OPEN, CLOSE, PERCOLATES or FULL
+    private int[] site = new int[16];    // site of the step
+
+    private int intervals = 0;           // edge e is alive for steps [from, to)
+    private int[] edge = new int[16], from = new int[16], to = new int[16];
+
+    /**
+     * constructor: create an empty script for an n-by-n grid, with all sites blocked
+     *
+     * @param n: number of rows in the grid
+     * @throws IllegalArgumentException if(n <=0) or the grid is too large
+     */
+    public PercolationScenario(int n){
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        if ((long) n * n > Integer.MAX_VALUE / 4)
+            throw new IllegalArgumentException("n is too large");
+        this.n = n;
+        top = n * n;
+        bottom = n * n + 1;
+        open = new boolean[n * n];
+        // edge ids: 2*site to the right, 2*site+1 down, then top and bottom links
+        born = new int[2 * n * n + 2 * n];
+        Arrays.fill(born, -1);
+    }
+
+    /**
+     * record: open site(row i, column j) if it is not open already
+     *
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public void open(int i, int j){
+        int s = validate(i, j);
+        int t = record(OPEN, s);
+        if (open[s]) return;
+        open[s] = true;
+        for (int e : edges(s, i, j))
+            if (e >= 0 && isOpen(endpoint(e, 0)) && isOpen(endpoint(e, 1))) born[e] = t;
+    }
+
+    /**
+     * record: block site(row i, column j) again if it is open
+     *
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public void close(int i, int j){
+        int s = validate(i, j);
+        int t = record(CLOSE, s);
+        if (!open[s]) return;
+        for (int e : edges(s, i, j))
+            if (e >= 0 && born[e] >= 0) retire(e, t);
+        open[s] = false;
+    }
+
+    /**
+     * record the question "does the system percolate now"
+     *
+     * @return int value: index of the question in answers()
+     */
+    public int percolates(){
+        record(PERCOLATES, -1);
+        return questions++;
+    }
+
+    /**
+     * record the question "is site(row i, column j) full now"
+     *
+     * @return int value: index of the question in answers()
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public int isFull(int i, int j){
+        record(FULL, validate(i, j));
+        return questions++;
+    }
+
+    /**
+     * answer every recorded question
+     *
+     * @return boolean array indexed by the numbers returned by percolates() and isFull()
+     */
+    public boolean[] answers(){
+        // the step of each question, and the number of questions before each step
+        int[] before = new int[steps + 1];
+        int[] asked = new int[questions];
+        int q = 0;
+        for (int t = 0; t < steps; t++) {
+            before[t] = q;
+            if (kind[t] == PERCOLATES || kind[t] == FULL) asked[q++] = t;
+        }
+        before[steps] = q;
+        boolean[] answer = new boolean[questions];
+        if (questions == 0) return answer;
+
+        // an edge alive for steps [from, to) is alive for questions [before[from], before[to])
+        int size = 1;
+        while (size < questions) size <<= 1;
+        Tree tree = new Tree(2 * size);
+        for (int k = 0; k < intervals; k++)
+            tree.add(1, 0, size, before[from[k]], before[to[k]], edge[k]);
+        for (int e = 0; e < born.length; e++)
+            if (born[e] >= 0) tree.add(1, 0, size, before[born[e]], questions, e);
+
+        UndoUF full = new UndoUF(n * n + 1);
+        UndoUF span = new UndoUF(n * n + 2);
+        walk(tree, 1, 0, size, asked, answer, full, span);
+        return answer;
+    }
+
+    private void walk(Tree tree, int node, int lo, int hi, int[] asked,
+                      boolean[] answer, UndoUF full, UndoUF span) {
+        if (lo >= questions) return;
+        int markFull = full.mark(), markSpan = span.mark();
+        for (int k = tree.head[node]; k >= 0; k = tree.next[k]) {
+            int e = tree.edge[k];
+            int u = endpoint(e, 0), v = endpoint(e, 1);
+            span.union(u, v);
+            if (u != bottom && v != bottom) full.union(u, v);
+        }
+        if (hi - lo == 1) {
+            int t = asked[lo];
+            if (kind[t] == PERCOLATES) answer[lo] = span.find(top) == span.find(bottom);
+            else answer[lo] = full.find(site[t]) == full.find(top);
+        }
+        else {
+            int mid = (lo + hi) >>> 1;
+            walk(tree, 2 * node, lo, mid, asked, answer, full, span);
+            walk(tree, 2 * node + 1, mid, hi, asked, answer, full, span);
+        }
+        full.undo(markFull);
+        span.undo(markSpan);
+    }
+
+    // the six edges a site can have: right, left, down, up, top link, bottom link
+    private int[] edges(int s, int i, int j) {
+        return new int[] {
+            j < n ? 2 * s : -1,
+            j > 1 ? 2 * (s - 1) : -1,
+            i < n ? 2 * s + 1 : -1,
+            i > 1 ? 2 * (s - n) + 1 : -1,
+            i == 1 ? 2 * n * n + (j-1) : -1,
+            i == n ? 2 * n * n + n + (j-1) : -1
+        };
+    }
+
+    // endpoint 0 or 1 of edge e
+    private int endpoint(int e, int which) {
+        if (e >= 2 * n * n + n) return which == 0 ? bottom : (n - 1) * n + (e - 2 * n * n - n);
+        if (e >= 2 * n * n) return which == 0 ? top : e - 2 * n * n;
+        int s = e >> 1;
+        if (which == 0) return s;
+        return (e & 1) == 0 ? s + 1 : s + n;
+    }
+
+    // the virtual sites are always open
+    private boolean isOpen(int v) {
+        return v >= n * n || open[v];
+    }
+
+    // edge e, alive since born[e], dies at step t
+    private void retire(int e, int t) {
+        if (intervals == edge.length) {
+            edge = Arrays.copyOf(edge, 2 * intervals);
+            from = Arrays.copyOf(from, 2 * intervals);
+            to = Arrays.copyOf(to, 2 * intervals);
+        }
+        edge[intervals] = e;
+        from[intervals] = born[e];
+        to[intervals] = t;
+        intervals++;
+        born[e] = -1;
+    }
+
+    private int record(int k, int s) {
+        if (steps == kind.length) {
+            kind = Arrays.copyOf(kind, 2 * steps);
+            site = Arrays.copyOf(site, 2 * steps);
+        }
+        kind[steps] = k;
+        site[steps] = s;
+        return steps++;
+    }
+
+    private int validate(int i, int j) {
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        return (i-1) * n + (j-1);
+    }
+
+    // segment tree over the questions, each node holding a list of edges
+    private static class Tree {
+        final int[] head;
+        int[] next = new int[16], edge = new int[16];
+        int entries = 0;
+
+        Tree(int nodes) {
+            head = new int[nodes];
+            Arrays.fill(head, -1);
+        }
+
+        // add e to the nodes covering questions [l, r) below node [lo, hi)
+        void add(int node, int lo, int hi, int l, int r, int e) {
+            if (r <= lo || hi <= l || l >= r) return;
+            if (l <= lo && hi <= r) {
+                if (entries == next.length) {
+                    next = Arrays.copyOf(next, 2 * entries);
+                    edge = Arrays.copyOf(edge, 2 * entries);
+                }
+                next[entries] = head[node];
+                edge[entries] = e;
+                head[node] = entries++;
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            add(2 * node, lo, mid, l, r, e);
+            add(2 * node + 1, mid, hi, l, r, e);
+        }
+    }
+
+    // union by size without path compression, so unions can be undone
+    private static class UndoUF {
+        private final int[] parent, size;
+        private int[] linked = new int[16];   // roots linked under another, in order
+        private int count = 0;
+
+        UndoUF(int sites) {
+            parent = new int[sites];
+            size = new int[sites];
+            for (int s = 0; s < sites; s++) {
+                parent[s] = s;
+                size[s] = 1;
+            }
+        }
+
+        int find(int p) {
+            while (parent[p] != p) p = parent[p];
+            return p;
+        }
+
+        void union(int p, int q) {
+            int rootP = find(p), rootQ = find(q);
+            if (rootP == rootQ) return;
+            if (size[rootP] < size[rootQ]) {
+                int t = rootP; rootP = rootQ; rootQ = t;
+            }
+            parent[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+            if (count == linked.length) linked = Arrays.copyOf(linked, 2 * count);
+            linked[count++] = rootQ;
+        }
+
+        int mark() {
+            return count;
+        }
+
+        // undo every union made since mark
+        void undo(int mark) {
+            while (count > mark) {
+                int child = linked[--count];
+                size[parent[child]] -= size[child];
+                parent[child] = child;
+            }
+        }
+    }
+}
@@ -1,63 +1,407 @@
 package percolation;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
 import edu.princeton.cs.algs4.Stopwatch;
 
 /*****************************************************************************
  *  Author:         Yan Xu
  *  Written:        9/8/2016
- *  Last updated:   9/10/2016
+ *  Last updated:   10/17/2026
                         *
  *  Compilation:    javac PercolationStats.java;
  *  Execution:      java PercolationStats;
+ *                  java PercolationStats n trials seed threads;
+ *                  java PercolationStats n maxTrials seed threads halfWidth millis;
+ *                  java PercolationStats n maxTrials seed threads halfWidth millis checkpoint;
+ *                  java PercolationStats lattice n ...   (square, cubic, triangular, bond)
  *  Dependency:     Percolation1.java
+ *                  PercolationTrial.java
+ *                  Lattice.java
  *                  StdRandom.java
- *                  StdStats.java
  *
  *  PercolationStats performs a series of computational experiments on a n-by-n grid
  *  percolation system. It performs trials independent computational experiments on an
  *  n-by-n grid and prints the mean, standard deviation and the 95% confidence interval
  *  for the percolation threshold.
+ *
+ *  Trials run on the square lattice of Percolation unless another
+ *  Lattice.Type is given; the threshold is then the fraction of open
+ *  elements (sites, or bonds for bond percolation) at which it percolates.
+ *
+ *  Every trial draws from its own SplittableRandom, split in trial order from a
+ *  master stream seeded with seed. Trial i therefore sees the same random sites
+ *  whether the trials run on one thread or are spread over a fork-join pool,
+ *  and its result (and so every statistic) is identical bit-for-bit.
+ *
+ *  A run may also stop early, once the confidence interval is narrow enough
+ *  or a time budget is spent; trials() then reports how many experiments the
+ *  statistics are based on.
+ *
+ *  A long run can be checkpointed to a small binary file holding the run's
+ *  parameters and every result folded so far. The random state needs no
+ *  saving: trial i always uses the i-th stream split from the seed, so a
+ *  resumed run splits the streams again, refolds the saved results and
+ *  carries on with trial done, ending with exactly the statistics of an
+ *  uninterrupted run.
+ *
+ *  With -Dpercolation.metrics=true, metrics() sums the counters of every
+ *  trial run (see PercolationMetrics) and main prints them.
  *****************************************************************************/
 
 public class PercolationStats {
 
-    private double[] threshold;//percolation threshold
+    private double mean;//mean of percolation threshold
+    private double stddev;//standard deviation of percolation threshold
     private int trials;//number of trials
+    private PercolationMetrics metrics;//counters of all trials run
+
+    // fewest trials before an early-stopping run trusts its interval
+    private static final int MIN_TRIALS = 30;
+
+    // checkpoint file: "PSTB", lattice, n, maxTrials, seed, halfWidth, done, results
+    private static final int CHECKPOINT_MAGIC = 0x50535442;
+    private static final long CHECKPOINT_NANOS = 60 * 1000000000L;   // once a minute
 
     /**
      *constructor: create a trials independent experiments on an n-by-n grid. In each
-     *trial, open the site randomly until the system percolates and then record the number
-     *of sites opened at this point.
+     *trial, open the sites in a random order until the system percolates and then record
+     *the number of sites opened at this point.
      *
      *@param n: number of rows in the grid
      *@param trials: number of independent computational experiment
      *@throws IllegalArgumentException if(n <= 0 or trials <= 0)
      */
     public PercolationStats(int n, int trials){
-        if(n <= 0 || trials <= 0){
+        this(n, trials, StdRandom.uniform(Integer.MAX_VALUE), 1);
+    }
+
+    /**
+     *constructor: run trials seeded experiments on an n-by-n grid using the given
+     *number of threads. The results depend only on n, trials and seed.
+     *
+     *@param n: number of rows in the grid
+     *@param trials: number of independent computational experiment
+     *@param seed: seed of the master random stream
+     *@param threads: number of worker threads, 1 runs every trial on the calling thread
+     *@throws IllegalArgumentException if(n <= 0 or trials <= 0 or threads <= 0)
+     */
+    public PercolationStats(int n, int trials, long seed, int threads){
+        this(n, trials, seed, threads, 0.0, 0);
+    }
+
+    /**
+     *constructor: run seeded experiments until the 95% confidence interval is at most
+     *halfWidth on each side of the mean, the time budget is used up, or maxTrials
+     *experiments are done, whichever comes first. Mean and variance are updated with
+     *Welford's method as results arrive, in trial order, so the number of trials run
+     *for a given halfWidth does not depend on the number of threads. At least
+     *MIN_TRIALS experiments are run before the interval is trusted.
+     *
+     *@param n: number of rows in the grid
+     *@param maxTrials: largest number of experiments to run
+     *@param seed: seed of the master random stream
+     *@param threads: number of worker threads, 1 runs every trial on the calling thread
+     *@param halfWidth: target half-width of the interval, 0 to disable
+     *@param budgetMillis: time budget in milliseconds, 0 to disable
+     *@throws IllegalArgumentException if(n <= 0 or maxTrials <= 0 or threads <= 0)
+     */
+    public PercolationStats(int n, int maxTrials, long seed, int threads,
+                            double halfWidth, long budgetMillis){
+        this(Lattice.Type.SQUARE, n, maxTrials, seed, threads, halfWidth, budgetMillis);
+    }
+
+    /**
+     *constructor: like the constructor above, on a lattice of the given type
+     *
+     *@param type: lattice of every trial
+     *@param n: linear size of the lattice
+     *@throws IllegalArgumentException if(n <= 0 or maxTrials <= 0 or threads <= 0)
+     */
+    public PercolationStats(Lattice.Type type, int n, int maxTrials, long seed, int threads,
+                            double halfWidth, long budgetMillis){
+        validate(n, maxTrials, threads);
+        run(type, n, maxTrials, seed, threads, halfWidth, budgetMillis, null, new double[0], 0);
+    }
+
+    /**
+     *constructor: like the constructor above, but save the results to checkpoint at
+     *least once a minute and when the run ends. If checkpoint already exists it must
+     *come from a run with the same n, maxTrials, seed and halfWidth; its trials are
+     *not run again, and the statistics are those of an uninterrupted run.
+     *
+     *@param checkpoint: checkpoint file, read if it exists and then rewritten
+     *@throws IllegalArgumentException if(n <= 0 or maxTrials <= 0 or threads <= 0)
+     *        or checkpoint belongs to a different run
+     *@throws IOException if checkpoint cannot be read or written
+     */
+    public PercolationStats(int n, int maxTrials, long seed, int threads,
+                            double halfWidth, long budgetMillis, File checkpoint) throws IOException{
+        this(Lattice.Type.SQUARE, n, maxTrials, seed, threads, halfWidth, budgetMillis, checkpoint);
+    }
+
+    /**
+     *constructor: like the constructor above, on a lattice of the given type
+     *
+     *@param type: lattice of every trial
+     *@throws IllegalArgumentException if(n <= 0 or maxTrials <= 0 or threads <= 0)
+     *        or checkpoint belongs to a different run
+     *@throws IOException if checkpoint cannot be read or written
+     */
+    public PercolationStats(Lattice.Type type, int n, int maxTrials, long seed, int threads,
+                            double halfWidth, long budgetMillis, File checkpoint) throws IOException{
+        validate(n, maxTrials, threads);
+        double[] results = new double[0];
+        int done = 0;
+        if(checkpoint.exists()){
+            try(DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(checkpoint)))){
+                if(in.readInt() != CHECKPOINT_MAGIC){
+                    throw new IOException(checkpoint + " is not a checkpoint");
+                }
+                if(in.readInt() != type.ordinal()
+                        || in.readInt() != n || in.readInt() != maxTrials || in.readLong() != seed
+                        || Double.compare(in.readDouble(), halfWidth) != 0){
+                    throw new IllegalArgumentException(checkpoint + " belongs to another run");
+                }
+                done = in.readInt();
+                if(done < 0 || done > maxTrials){
+                    throw new IOException(checkpoint + " is corrupt");
+                }
+                results = new double[done];
+                for(int i = 0; i < done; i++){
+                    results[i] = in.readDouble();
+                }
+            }
+        }
+        try{
+            run(type, n, maxTrials, seed, threads, halfWidth, budgetMillis, checkpoint, results, done);
+        }
+        catch(UncheckedIOException e){
+            throw e.getCause();
+        }
+    }
+
+    /**
+     *resume the run saved in checkpoint with the parameters stored there
+     *
+     *@param checkpoint: checkpoint file written by an earlier run
+     *@param threads: number of worker threads
+     *@param budgetMillis: time budget of this part of the run in milliseconds, 0 to disable
+     *@return the statistics of the whole run
+     *@throws IOException if checkpoint cannot be read or written
+     */
+    public static PercolationStats resume(File checkpoint, int threads, long budgetMillis) throws IOException{
+        Lattice.Type type;
+        int n, maxTrials;
+        long seed;
+        double halfWidth;
+        try(DataInputStream in = new DataInputStream(new FileInputStream(checkpoint))){
+            if(in.readInt() != CHECKPOINT_MAGIC){
+                throw new IOException(checkpoint + " is not a checkpoint");
+            }
+            int lattice = in.readInt();
+            if(lattice < 0 || lattice >= Lattice.Type.values().length){
+                throw new IOException(checkpoint + " is corrupt");
+            }
+            type = Lattice.Type.values()[lattice];
+            n = in.readInt();
+            maxTrials = in.readInt();
+            seed = in.readLong();
+            halfWidth = in.readDouble();
+        }
+        return new PercolationStats(type, n, maxTrials, seed, threads, halfWidth, budgetMillis, checkpoint);
+    }
+
+    private static void validate(int n, int maxTrials, int threads){
+        if(n <= 0 || maxTrials <= 0){
             throw new IllegalArgumentException("n or trials should larger than 0");
         }
-        Percolation grid; //n-by-n grid percolation system
-        this.trials = trials;
-        threshold = new double[trials];
-        for(int i = 0; i < trials; i++){
-            grid = new Percolation(n);
-            int count = 0;
-            while(!grid.percolates()){
-                int x = StdRandom.uniform(n) + 1;
-                int y = StdRandom.uniform(n) + 1;
-                if(!grid.isOpen(x,y)){
-                    grid.open(x,y);
-                    count++;
-                    if(grid.percolates()){
-                        threshold[i] = count/((double)n * n);
-                        break;
+        if(threads <= 0){
+            throw new IllegalArgumentException("threads should larger than 0");
+        }
+    }
+
+    // run trials done..maxTrials-1 after refolding results[0..done)
+    private void run(Lattice.Type type, int n, int maxTrials, long seed, int threads, double halfWidth,
+                     long budgetMillis, File checkpoint, double[] results, int saved){
+        long deadline = budgetMillis > 0 ? System.nanoTime() + budgetMillis * 1000000L
+                                         : Long.MAX_VALUE;
+
+        // trial i uses the i-th stream split from the master; the streams are split
+        // batch by batch, so a large maxTrials costs nothing until its trials run
+        SplittableRandom master = new SplittableRandom(seed);
+        for(int i = 0; i < saved; i++){
+            master.split();
+        }
+
+        // trials run in batches; each batch is folded into the running mean in
+        // trial order and the stopping rule is checked after every trial. With
+        // nothing to stop or save in between, the rest of the run is one batch
+        boolean batched = halfWidth > 0 || budgetMillis > 0 || checkpoint != null;
+        int batch = !batched ? maxTrials : threads == 1 ? 1 : 4 * threads;
+        List<PercolationTrial> created = new ArrayList<>();   // every engine, for metrics
+        PercolationTrial engine = threads == 1 ? new PercolationTrial(type, n) : null;
+        if(engine != null) created.add(engine);
+        ThreadLocal<PercolationTrial> engines = ThreadLocal.withInitial(() -> { // one per worker
+            PercolationTrial e = new PercolationTrial(type, n);
+            synchronized(created){
+                created.add(e);
+            }
+            return e;
+        });
+        ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+        SplittableRandom[] random = null;   // streams of the batch running on the pool
+        int done = 0;
+        double mean = 0.0;
+        double m2 = 0.0;   // sum of squared deviations from the running mean
+        long nextCheckpoint = System.nanoTime() + CHECKPOINT_NANOS;
+        try{
+            boolean stop = false;
+            int hi = saved;      // the saved results are folded like a finished batch
+            while(!stop){
+                while(done < hi && !stop){
+                    double delta = results[done] - mean;
+                    done++;
+                    mean += delta / done;
+                    m2 += delta * (results[done - 1] - mean);
+                    stop = halfWidth > 0 && done >= MIN_TRIALS
+                            && 1.96 * Math.sqrt(m2 / (done - 1) / done) <= halfWidth;
+                }
+                if(done == maxTrials || System.nanoTime() >= deadline) stop = true;
+                if(checkpoint != null && (stop || System.nanoTime() >= nextCheckpoint)){
+                    saveCheckpoint(checkpoint, type, n, maxTrials, seed, halfWidth, results, done);
+                    nextCheckpoint = System.nanoTime() + CHECKPOINT_NANOS;
+                }
+                if(stop) break;
+
+                hi = Math.min(maxTrials, done + batch);
+                if(hi > results.length){
+                    results = Arrays.copyOf(results, (int) Math.min(maxTrials, Math.max(hi, 2L * results.length)));
+                }
+                if(pool == null){
+                    for(int i = done; i < hi; i++){
+                        results[i] = engine.threshold(master.split());
+                    }
+                }
+                else{
+                    if(random == null) random = new SplittableRandom[Math.min(batch, maxTrials - done)];
+                    for(int i = done; i < hi; i++){
+                        random[i - done] = master.split();
                     }
+                    pool.invoke(new Trials(engines, random, results, done, done, hi));
                 }
+            }
+        }
+        finally{
+            if(pool != null) pool.shutdown();
+        }
 
+        this.trials = done;
+        this.mean = mean;
+        this.stddev = Math.sqrt(m2 / (done - 1));
+
+        // trials computed in the last batch but cut by early stopping count as well
+        PercolationMetrics.Counters total = new PercolationMetrics.Counters();
+        if(PercolationMetrics.ENABLED){
+            synchronized(created){
+                for(PercolationTrial e : created){
+                    total.add(e.counters());
+                }
             }
         }
+        metrics = new PercolationMetrics(total);
+    }
+
+    // write the folded results to a temporary file and move it over checkpoint,
+    // so a run killed while writing still leaves the previous checkpoint
+    private static void saveCheckpoint(File checkpoint, Lattice.Type type, int n, int maxTrials, long seed,
+                                       double halfWidth, double[] results, int done){
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        try{
+            try(DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))){
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeInt(type.ordinal());
+                out.writeInt(n);
+                out.writeInt(maxTrials);
+                out.writeLong(seed);
+                out.writeDouble(halfWidth);
+                out.writeInt(done);
+                for(int i = 0; i < done; i++){
+                    out.writeDouble(results[i]);
+                }
+            }
+            Files.move(temp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // fork-join task running trials [lo, hi) with the streams of a batch that starts at
+    // trial first, each result goes to its own slot
+    private static class Trials extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final ThreadLocal<PercolationTrial> engines;
+        private final SplittableRandom[] random;
+        private final double[] threshold;
+        private final int first, lo, hi;
+
+        Trials(ThreadLocal<PercolationTrial> engines, SplittableRandom[] random, double[] threshold,
+               int first, int lo, int hi){
+            this.engines = engines;
+            this.random = random;
+            this.threshold = threshold;
+            this.first = first;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute(){
+            if(hi - lo == 1){
+                threshold[lo] = engines.get().threshold(random[lo - first]);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Trials(engines, random, threshold, first, lo, mid),
+                      new Trials(engines, random, threshold, first, mid, hi));
+        }
+    }
+
+    /**
+     *number of experiments the statistics are based on
+     *@return int value: trials run, at most the requested number
+     */
+
+    public int trials(){
+        return trials;
+    }
+
+    /**
+     *counters of the trials run by this object (not of saved checkpoint trials)
+     *@return snapshot of the counters, all 0 unless PercolationMetrics.ENABLED
+     */
+
+    public PercolationMetrics metrics(){
+        return metrics;
     }
 
     /**
@@ -66,7 +410,7 @@ public class PercolationStats {
      */
 
     public double mean(){
-        return StdStats.mean(threshold);
+        return mean;
     }
 
     /**
@@ -75,7 +419,7 @@ public class PercolationStats {
      */
 
     public double stddev(){
-        return StdStats.stddev(threshold);
+        return stddev;
     }
 
 
@@ -100,6 +444,47 @@ public class PercolationStats {
     public static void main(String[] args){
         Stopwatch time;
 
+        // an optional lattice name comes first
+        Lattice.Type type = Lattice.Type.SQUARE;
+        if(args.length > 0 && !Character.isDigit(args[0].charAt(0))){
+            type = Lattice.Type.valueOf(args[0].toUpperCase());
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+
+        if(args.length == 4 || args.length == 6 || args.length == 7){
+            int n = Integer.parseInt(args[0]);
+            int trials = Integer.parseInt(args[1]);
+            long seed = Long.parseLong(args[2]);
+            int threads = Integer.parseInt(args[3]);
+            double halfWidth = args.length >= 6 ? Double.parseDouble(args[4]) : 0.0;
+            long millis = args.length >= 6 ? Long.parseLong(args[5]) : 0;
+            time = new Stopwatch();
+            PercolationStats test;
+            if(args.length == 7){
+                // rerunning the same command after an interruption resumes the run
+                try{
+                    test = new PercolationStats(type, n, trials, seed, threads, halfWidth, millis,
+                                                new File(args[6]));
+                }
+                catch(IOException e){
+                    throw new UncheckedIOException(e);
+                }
+            }
+            else{
+                test = new PercolationStats(type, n, trials, seed, threads, halfWidth, millis);
+            }
+            System.out.println("trials                  = " + test.trials());
+            System.out.println("mean                    = " + test.mean());
+            System.out.println("stddev                  = " + test.stddev());
+            System.out.println("95% confidence interval = " + test.confidenceLo()
+                    + "," + test.confidenceHi());
+            System.out.println("total running time" + time.elapsedTime());
+            if(PercolationMetrics.ENABLED){
+                System.out.println(test.metrics());
+            }
+            return;
+        }
+
         time = new Stopwatch();
         PercolationStats test = new PercolationStats(200,100);
         System.out.println("% java PercolationStats 200 100");
@@ -0,0 +1,163 @@
+package percolation;
+import java.util.SplittableRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+/*****************************************************************************
+ *  Compilation:    javac PercolationSweep.java;
+ *  Execution:      java PercolationSweep n trials seed;
+ *  Dependency:     PercolationTrial.java
+ *                  Percolation.java
+ *
+ *  PercolationSweep estimates the whole percolation curve of an n-by-n grid
+ *  with the Newman-Ziff algorithm. Each trial opens all n*n sites in random
+ *  order and records, after every open, whether the system percolates and the
+ *  size of its largest cluster. Averaging over the trials gives both
+ *  observables for every number of open sites k (the "microcanonical"
+ *  curves), from which the values at any occupancy probability p follow by a
+ *  binomial convolution:
+ *
+ *      Q(p) = sum over k of C(N, k) p^k (1-p)^(N-k) Q(k),   N = n*n
+ *
+ *  Trials are seeded like PercolationStats: trial i draws from the i-th split
+ *  of a master SplittableRandom, so both classes see the same site orders for
+ *  the same seed.
+ *****************************************************************************/
+
+public class PercolationSweep {
+    private final int sites;          // number of sites n*n
+    private final double[] spanning;  // probability of percolation with k open sites
+    private final double[] largest;   // mean largest cluster size with k open sites
+
+    /**
+     * constructor: run trials Newman-Ziff sweeps on an n-by-n grid
+     *
+     * @param n: number of rows in the grid
+     * @param trials: number of independent sweeps
+     * @param seed: seed of the master random stream
+     * @throws IllegalArgumentException if(n <= 0 or trials <= 0)
+     */
+    public PercolationSweep(int n, int trials, long seed){
+        if (n <= 0 || trials <= 0)
+            throw new IllegalArgumentException("n or trials should larger than 0");
+        sites = n * n;
+        long[] spanningCount = new long[sites + 1];
+        long[] largestSum = new long[sites + 1];
+
+        SplittableRandom master = new SplittableRandom(seed);
+        PercolationTrial engine = new PercolationTrial(n);
+        for (int i = 0; i < trials; i++)
+            engine.sweep(master.split(), spanningCount, largestSum);
+
+        spanning = new double[sites + 1];
+        largest = new double[sites + 1];
+        for (int k = 0; k <= sites; k++) {
+            spanning[k] = spanningCount[k] / (double) trials;
+            largest[k] = largestSum[k] / (double) trials;
+        }
+    }
+
+    /**
+     * probability that the system percolates with exactly k open sites
+     *
+     * @return double array of length n*n+1, indexed by k
+     */
+    public double[] spanningProbability(){
+        return spanning.clone();
+    }
+
+    /**
+     * mean size (in sites) of the largest cluster with exactly k open sites
+     *
+     * @return double array of length n*n+1, indexed by k
+     */
+    public double[] largestCluster(){
+        return largest.clone();
+    }
+
+    /**
+     * probability that the system percolates when each site is open with
+     * probability p, for every p in the grid
+     *
+     * @param p: occupancy probabilities, each in [0, 1]
+     * @return double array with one value per entry of p
+     * @throws IllegalArgumentException if some p is outside [0, 1]
+     */
+    public double[] spanningProbability(double[] p){
+        return convolve(spanning, p);
+    }
+
+    /**
+     * mean size (in sites) of the largest cluster when each site is open with
+     * probability p, for every p in the grid
+     *
+     * @param p: occupancy probabilities, each in [0, 1]
+     * @return double array with one value per entry of p
+     * @throws IllegalArgumentException if some p is outside [0, 1]
+     */
+    public double[] largestCluster(double[] p){
+        return convolve(largest, p);
+    }
+
+    // binomial convolution of q[0..N] at every probability in p
+    private static double[] convolve(double[] q, double[] p){
+        double[] result = new double[p.length];
+        for (int i = 0; i < p.length; i++)
+            result[i] = convolve(q, p[i]);
+        return result;
+    }
+
+    // sum of B(N, k, p) q[k]; the weights are built outward from the mode by
+    // their ratios and normalized at the end, so nothing over- or underflows
+    private static double convolve(double[] q, double p){
+        if (!(p >= 0.0 && p <= 1.0))
+            throw new IllegalArgumentException("p should be in [0, 1]");
+        int total = q.length - 1;
+        if (p == 0.0) return q[0];
+        if (p == 1.0) return q[total];
+
+        int mode = (int) Math.min(total, Math.floor((total + 1) * p));
+        double ratio = p / (1.0 - p);
+        double sum = q[mode];
+        double norm = 1.0;
+
+        double b = 1.0;
+        for (int k = mode + 1; k <= total; k++) {
+            b *= ratio * (total - k + 1) / k;
+            if (b < 1e-16 * norm) break;
+            sum += b * q[k];
+            norm += b;
+        }
+        b = 1.0;
+        for (int k = mode - 1; k >= 0; k--) {
+            b *= (k + 1) / (ratio * (total - k));
+            if (b < 1e-16 * norm) break;
+            sum += b * q[k];
+            norm += b;
+        }
+        return sum / norm;
+    }
+
+    public static void main(String[] args){
+        int n = 100;
+        int trials = 100;
+        long seed = 1;
+        if (args.length == 3) {
+            n = Integer.parseInt(args[0]);
+            trials = Integer.parseInt(args[1]);
+            seed = Long.parseLong(args[2]);
+        }
+
+        Stopwatch time = new Stopwatch();
+        PercolationSweep sweep = new PercolationSweep(n, trials, seed);
+        double[] p = new double[41];
+        for (int i = 0; i < p.length; i++) p[i] = 0.4 + 0.005 * i;
+        double[] spanning = sweep.spanningProbability(p);
+        double[] largest = sweep.largestCluster(p);
+
+        System.out.println("% java PercolationSweep " + n + " " + trials + " " + seed);
+        System.out.println("p        spanning   largest cluster fraction");
+        for (int i = 0; i < p.length; i++)
+            System.out.printf("%.3f    %.6f   %.6f%n", p[i], spanning[i], largest[i] / (n * n));
+        System.out.println("total running time" + time.elapsedTime());
+    }
+}
@@ -0,0 +1,166 @@
+package percolation;
+import java.util.SplittableRandom;
+
+/*****************************************************************************
+ *  Compilation:    javac PercolationTrial.java;
+ *  Execution:      none
+ *  Dependency:     Percolation.java
+ *                  CubicPercolation.java
+ *                  TriangularPercolation.java
+ *                  BondPercolation.java
+ *                  Lattice.java
+ *
+ *  PercolationTrial runs one percolation experiment without rejected draws.
+ *  Instead of picking random (row, column) pairs and skipping the open ones,
+ *  it opens sites in the order of a random permutation of all n*n sites
+ *  (or all elements of another Lattice, such as the bonds of BondPercolation),
+ *  produced lazily by a partial Fisher-Yates shuffle: the k-th site opened is
+ *  a uniform pick among the n*n - k sites still blocked. A trial stops as soon
+ *  as the system percolates, so it costs O(n^2 alpha(n^2)) at most.
+ *
+ *  The site array is allocated once and reused for every trial run by the
+ *  same engine. It is reset to the identity before each shuffle so that the
+ *  order of a trial depends only on its random stream, never on the trials
+ *  the engine ran before (PercolationStats relies on this to give the same
+ *  results for any number of threads). An engine is not thread-safe; use one
+ *  per thread.
+ *
+ *  sweep() runs the same shuffle to the end (Newman-Ziff) and records, after
+ *  every open, whether the system percolates and the size of its largest
+ *  cluster. Only the cluster of the site just opened can grow, so the largest
+ *  cluster is tracked with one comparison per open. Sweeps are only run on
+ *  the square lattice.
+ *
+ *  Each lattice type has its own copy of the trial loop, holding the grid as
+ *  its concrete class, so the call to open() stays monomorphic however many
+ *  lattice types a process runs.
+ *
+ *  When PercolationMetrics.ENABLED is on, threshold() times every trial, adds
+ *  the trial (and the counters of its Percolation grid) to the engine's
+ *  counters and emits a TrialEvent.
+ *****************************************************************************/
+
+class PercolationTrial {
+    private final Lattice.Type type;  // lattice of every trial
+    private final int n;              // linear size of the lattice
+    private final int[] sites;        // sites[0..k) are the elements opened so far
+    private final PercolationMetrics.Counters counters =  // null unless instrumented
+            PercolationMetrics.ENABLED ? new PercolationMetrics.Counters() : null;
+
+    /**
+     * constructor: create an engine for n-by-n grids
+     *
+     * @param n: number of rows in the grid
+     */
+    PercolationTrial(int n){
+        this(Lattice.Type.SQUARE, n);
+    }
+
+    /**
+     * constructor: create an engine for lattices of the given type and size
+     *
+     * @param type: lattice of every trial
+     * @param n: linear size of the lattice
+     */
+    PercolationTrial(Lattice.Type type, int n){
+        this.type = type;
+        this.n = n;
+        sites = new int[type.elements(n)];
+    }
+
+    /**
+     * one experiment: open sites in random order until the system percolates
+     *
+     * @param random: random stream of this trial
+     * @return double value: fraction of elements open when the system first percolates
+     */
+    double threshold(SplittableRandom random){
+        int total = sites.length;
+        for (int k = 0; k < total; k++) sites[k] = k;
+
+        if (total == 0) return 0.0;   // a lattice without elements percolates at once
+        long start = PercolationMetrics.ENABLED ? System.nanoTime() : 0;
+        // one loop per kernel, so that every open() is a direct call
+        Lattice grid;
+        int k = 0;
+        switch (type) {
+            case SQUARE: {
+                Percolation g = new Percolation(n);
+                while (!g.percolates()) g.open(next(k++, random));
+                grid = g;
+                break;
+            }
+            case CUBIC: {
+                CubicPercolation g = new CubicPercolation(n);
+                while (!g.percolates()) g.open(next(k++, random));
+                grid = g;
+                break;
+            }
+            case TRIANGULAR: {
+                TriangularPercolation g = new TriangularPercolation(n);
+                while (!g.percolates()) g.open(next(k++, random));
+                grid = g;
+                break;
+            }
+            default: {
+                BondPercolation g = new BondPercolation(n);
+                while (!g.percolates()) g.open(next(k++, random));
+                grid = g;
+                break;
+            }
+        }
+        if (PercolationMetrics.ENABLED) record(grid, k, total, System.nanoTime() - start);
+        return k / (double) total;
+    }
+
+    // swap a uniformly chosen blocked site into position k and return it
+    private int next(int k, SplittableRandom random) {
+        int r = k + random.nextInt(sites.length - k);
+        int site = sites[r];
+        sites[r] = sites[k];
+        sites[k] = site;
+        return site;
+    }
+
+    // add a finished trial to the counters and to the flight recording
+    private void record(Lattice grid, int opened, int total, long nanos) {
+        PercolationMetrics.Counters gridCounters =
+                grid instanceof Percolation ? ((Percolation) grid).counters() : null;
+        if (gridCounters != null) counters.add(gridCounters);
+        counters.draws += opened;
+        counters.trial(nanos);
+        TrialEvent.emit(type, n, opened, opened / (double) total, gridCounters, nanos);
+    }
+
+    // the counters of every trial run so far, null unless PercolationMetrics.ENABLED
+    PercolationMetrics.Counters counters() {
+        return counters;
+    }
+
+    /**
+     * one Newman-Ziff sweep: open every site in random order and add the
+     * observables after k opens to slot k of the accumulators
+     *
+     * @param random: random stream of this trial
+     * @param spanning: spanning[k] is incremented if the system percolates with k open sites
+     * @param largest: largest[k] is increased by the largest cluster size with k open sites
+     */
+    void sweep(SplittableRandom random, long[] spanning, long[] largest){
+        if (type != Lattice.Type.SQUARE) throw new IllegalStateException("sweeps need the square lattice");
+        int total = sites.length;
+        for (int k = 0; k < total; k++) sites[k] = k;
+
+        Percolation grid = new Percolation(n);
+        int first = total; // number of open sites when the system first percolates
+        int big = 0;
+        for (int k = 0; k < total; k++) {
+            int site = next(k, random);
+            grid.open(site);
+            big = Math.max(big, grid.clusterSize(site));
+            largest[k + 1] += big;
+            if (first == total && grid.percolates()) first = k + 1;
+        }
+        // percolation is monotone in the number of open sites
+        for (int k = first; k <= total; k++) spanning[k]++;
+    }
+}
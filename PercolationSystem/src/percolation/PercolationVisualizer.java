@@ -1,8 +1,9 @@
 package percolation;
 /******************************************************************************
  *  Compilation:  javac PercolationVisualizer.java
- *  Execution:    java PercolationVisualizer input.txt
- *  Dependencies: Percolation.java
+ *  Execution:    java PercolationVisualizer input.txt [frameSkip]
+ *                java PercolationVisualizer trace.bin [frameSkip]
+ *  Dependencies: Percolation.java PercolationRenderer.java SiteTrace.java
  *
  *  This program takes the name of a file as a command-line argument.
  *  From that file, it
@@ -15,9 +16,15 @@ package percolation;
  *  open sites (that aren't full) in white, and blocked sites in black,
  *  with with site (1, 1) in the upper left-hand corner.
  *
+ *  Only the sites that change are redrawn (see PercolationRenderer), and
+ *  with a frameSkip argument the screen is updated every frameSkip sites,
+ *  so large traces replay quickly. draw() still redraws the whole system.
+ *
  ******************************************************************************/
 
 import java.awt.Font;
+import java.io.File;
+import java.io.IOException;
 
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdDraw;
@@ -62,31 +69,40 @@ public class PercolationVisualizer {
 
     }
 
-    public static void main(String[] args) {
-        In in = new In(args[0]);      // input file
-        int n = in.readInt();         // n-by-n percolation system
+    public static void main(String[] args) throws IOException {
+        int frameSkip = 1;            // opens between two frames
+        if (args.length == 2) frameSkip = Integer.parseInt(args[1]);
 
         // turn on animation mode
         StdDraw.enableDoubleBuffering();
 
-        // repeatedly read in sites to open and draw resulting system
+        // a binary trace (see SiteTrace) is read from its memory mapping
+        if (args[0].endsWith(".bin")) {
+            try (SiteTrace trace = new SiteTrace(new File(args[0]))) {
+                int n = trace.n();
+                PercolationRenderer renderer = new PercolationRenderer(new Percolation(n), n, frameSkip);
+                while (trace.hasNext()) {
+                    int site = trace.next();
+                    renderer.open(site / n + 1, site % n + 1);
+                }
+                renderer.show();
+            }
+            return;
+        }
+
+        In in = new In(args[0]);      // input file
+        int n = in.readInt();         // n-by-n percolation system
+
+        // repeatedly read in sites to open; only the sites that change are redrawn
         Percolation perc = new Percolation(n);
-        draw(perc, n);
-        StdDraw.show();
+        PercolationRenderer renderer = new PercolationRenderer(perc, n, frameSkip);
         //StdDraw.pause(DELAY);
-        int count = 0;
         while (!in.isEmpty()) {
             int i = in.readInt();
             int j = in.readInt();
-            count++;
-            perc.open(i, j);
-            boolean xx = perc.isOpen(i,j);
-            boolean yy = perc.isFull(i,j);
-            boolean zz = perc.percolates();
-            draw(perc, n);
-            StdDraw.show();
+            renderer.open(i, j);
             //StdDraw.pause(DELAY);
-
         }
+        renderer.show();
     }
 }
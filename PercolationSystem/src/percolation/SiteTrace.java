@@ -0,0 +1,264 @@
+package percolation;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import edu.princeton.cs.algs4.Stopwatch;
+
+/*****************************************************************************
+ *  Compilation:    javac SiteTrace.java;
+ *  Execution:      java SiteTrace input.txt trace.bin   (convert)
+ *                  java SiteTrace trace.bin             (replay)
+ *  Dependency:     Percolation.java
+ *
+ *  SiteTrace is a compact binary form of the text traces read by
+ *  PercolationVisualizer ("n" followed by "i j" pairs). The file is
+ *
+ *      int    MAGIC ("PERC"), big-endian
+ *      int    n, big-endian
+ *      varint zigzag(site[k] - site[k-1]) for every opened site, site[-1] = 0
+ *
+ *  where site = (i-1) * n + (j-1) and a varint stores 7 bits per byte, low
+ *  bits first, with the high bit set on every byte but the last. Traces
+ *  recorded by hand or row by row open nearby sites one after another, so
+ *  most deltas take one or two bytes instead of the ten or so of the text.
+ *
+ *  The reader maps the file and decodes the varints straight from the
+ *  mapping, 1GB at a time; replay() hands every site to Percolation.open
+ *  without any tokenizing or (i, j) conversion.
+ *****************************************************************************/
+
+public class SiteTrace implements Closeable {
+    public static final int MAGIC = 0x50455243;      // "PERC"
+    private static final long WINDOW = 1L << 30;     // bytes mapped at a time
+    private static final int MAX_VARINT = 5;         // bytes of the longest int varint
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long length;          // file size in bytes
+    private final int n;                // number of rows in the grid
+    private final long sites;           // n * n
+    private MappedByteBuffer window;
+    private long windowStart;           // file position of window[0]
+    private int previous = 0;           // last site read
+
+    /**
+     * constructor: open a binary trace for reading
+     *
+     * @param trace: file written by SiteTrace.Writer or convert()
+     * @throws IOException if the file cannot be read or is not a trace
+     */
+    public SiteTrace(File trace) throws IOException {
+        file = new RandomAccessFile(trace, "r");
+        channel = file.getChannel();
+        length = channel.size();
+        if (length < 8) {
+            file.close();
+            throw new IOException(trace + " is not a site trace");
+        }
+        map(0);
+        int magic = window.getInt();
+        n = window.getInt();
+        if (magic != MAGIC || n <= 0) {
+            file.close();
+            throw new IOException(trace + " is not a site trace");
+        }
+        sites = (long) n * n;
+    }
+
+    /**
+     * number of rows in the grid of the trace
+     * @return int value: n
+     */
+    public int n(){
+        return n;
+    }
+
+    /**
+     * show whether there is another site to read
+     * @return Boolean value: true(more sites) or false(end of trace)
+     */
+    public boolean hasNext(){
+        return windowStart + window.position() < length;
+    }
+
+    /**
+     * read the next site
+     *
+     * @return int value: (i-1) * n + (j-1) for site (i, j)
+     * @throws IndexOutOfBoundsException if the trace holds a site outside the grid
+     * @throws IllegalStateException if the trace ends in the middle of a site
+     */
+    public int next(){
+        if (window.remaining() < MAX_VARINT && windowStart + window.limit() < length) {
+            try {
+                map(windowStart + window.position());
+            }
+            catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        int zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (!window.hasRemaining() || shift > 28)
+                throw new IllegalStateException("truncated site trace");
+            int b = window.get();
+            zigzag |= (b & 0x7f) << shift;
+            if (b >= 0) break;
+        }
+        int site = previous + ((zigzag >>> 1) ^ -(zigzag & 1));
+        if (site < 0 || site >= sites) throw new IndexOutOfBoundsException("site out of bounds");
+        previous = site;
+        return site;
+    }
+
+    /**
+     * open every remaining site of the trace in the given system
+     *
+     * @param perc: an n-by-n system
+     * @return int value: number of sites read
+     * @throws IllegalArgumentException if the system has the wrong size
+     */
+    public int replay(Percolation perc){
+        if (perc.size() != n) throw new IllegalArgumentException("trace is for n = " + n);
+        int count = 0;
+        while (hasNext()) {
+            perc.open(next());
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();   // the mapping stays valid until it is collected
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                             Math.min(WINDOW, length - position));
+        window.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Writer: writes a binary trace site by site
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final int n;
+        private int previous = 0;
+
+        /**
+         * constructor: create the trace file and write its header
+         *
+         * @param trace: file to create or overwrite
+         * @param n: number of rows in the grid
+         * @throws IllegalArgumentException if(n <= 0) or n*n sites do not fit in an int
+         * @throws IOException if the file cannot be written
+         */
+        public Writer(File trace, int n) throws IOException {
+            if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+            if ((long) n * n > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("n is too large");
+            this.n = n;
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(trace), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(n);
+        }
+
+        /**
+         * append site(row i, column j)
+         *
+         * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+         * @throws IOException if the file cannot be written
+         */
+        public void add(int i, int j) throws IOException {
+            if (i < 1||j < 1||i > n||j > n)
+                throw new IndexOutOfBoundsException("index out of bounds");
+            int site = (i-1) * n + (j-1);
+            int delta = site - previous;
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            while ((zigzag & ~0x7f) != 0) {
+                out.write((zigzag & 0x7f) | 0x80);
+                zigzag >>>= 7;
+            }
+            out.write(zigzag);
+            previous = site;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * convert a text trace ("n" then "i j" pairs) to a binary trace
+     *
+     * @param text: text trace, as read by PercolationVisualizer
+     * @param trace: binary trace to create or overwrite
+     * @return int value: number of sites converted
+     * @throws IOException if a file cannot be read or written, or the text is malformed
+     */
+    public static int convert(File text, File trace) throws IOException {
+        int count = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(text), 1 << 16)) {
+            int n = readInt(in);
+            if (n == Integer.MIN_VALUE) throw new EOFException(text + " is empty");
+            try (Writer out = new Writer(trace, n)) {
+                while (true) {
+                    int i = readInt(in);
+                    if (i == Integer.MIN_VALUE) break;
+                    int j = readInt(in);
+                    if (j == Integer.MIN_VALUE) throw new EOFException(text + " ends after a row");
+                    out.add(i, j);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // next whitespace-separated integer, Integer.MIN_VALUE at the end of the input
+    private static int readInt(InputStream in) throws IOException {
+        int c = in.read();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') c = in.read();
+        if (c < 0) return Integer.MIN_VALUE;
+        boolean negative = c == '-';
+        if (negative) c = in.read();
+        if (c < '0' || c > '9') throw new IOException("not an integer");
+        int value = 0;
+        while (c >= '0' && c <= '9') {
+            value = 10 * value + (c - '0');
+            c = in.read();
+        }
+        return negative ? -value : value;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2) {
+            int count = convert(new File(args[0]), new File(args[1]));
+            System.out.println(count + " sites written to " + args[1]);
+            return;
+        }
+        Stopwatch time = new Stopwatch();
+        try (SiteTrace trace = new SiteTrace(new File(args[0]))) {
+            Percolation perc = new Percolation(trace.n());
+            int count = trace.replay(perc);
+            System.out.println(count + " sites opened");
+            System.out.println(perc.percolates() ? "percolates" : "does not percolate");
+        }
+        System.out.println("total running time" + time.elapsedTime());
+    }
+}
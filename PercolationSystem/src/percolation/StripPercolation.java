@@ -0,0 +1,267 @@
+package percolation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import edu.princeton.cs.algs4.Stopwatch;
+
+/*****************************************************************************
+ *  Compilation:    javac StripPercolation.java;
+ *  Execution:      java StripPercolation n p threads;
+ *  Dependency:     Percolation.java (for the check in main)
+ *
+ *  StripPercolation labels the clusters of one large n-by-n grid, whose open
+ *  sites are given all at once, on several threads. The grid is split into
+ *  horizontal strips and the work runs in four phases:
+ *
+ *    1. (parallel)   every strip unions each open site with its open left and
+ *                    up neighbours inside the strip; a strip only ever writes
+ *                    its own slice of the shared parent[] array
+ *    2. (sequential) the open vertical pairs across each strip boundary are
+ *                    unioned, n unions per boundary
+ *    3. (sequential) roots of the first row get the TOP flag and roots of the
+ *                    last row the BOTTOM flag
+ *    4. (parallel)   every site is pointed directly at its root, so isFull()
+ *                    is one array lookup
+ *
+ *  In phase 4 a thread may follow a link that another thread is rewriting;
+ *  both the old and the new value point to an ancestor of the site, so the
+ *  root found is the same either way.
+ *
+ *  The answers of isOpen(), isFull() and percolates() are those of a
+ *  Percolation in which the same sites have been opened; main() checks this
+ *  on its grid and on 2000 small random grids split into 1 to 8 strips.
+ *****************************************************************************/
+
+public class StripPercolation {
+    private static final byte TOP = 1;    // cluster touches the first row
+    private static final byte BOTTOM = 2; // cluster touches the last row
+
+    private final int n;            // number of rows in the grid
+    private final BitSet open;      // open sites, index (i-1) * n + (j-1)
+    private final int[] parent;     // parent link, or -(cluster size) at a root
+    private final byte[] flags;     // TOP/BOTTOM, valid at roots
+    private final boolean percolates;
+
+    /**
+     * constructor: label the clusters of an n-by-n grid with the given open
+     * sites using the given number of threads
+     *
+     * @param n: number of rows in the grid
+     * @param open: open sites, bit (i-1) * n + (j-1) for site (i, j); not copied
+     *              and must not change afterwards
+     * @param threads: number of worker threads (and strips)
+     * @throws IllegalArgumentException if(n <= 0 or threads <= 0)
+     */
+    public StripPercolation(int n, BitSet open, int threads){
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        if (threads <= 0) throw new IllegalArgumentException("threads should larger than 0");
+        if ((long) n * n > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("n is too large");
+        this.n = n;
+        this.open = open;
+        parent = new int[n * n];
+        flags = new byte[n * n];
+
+        int strips = Math.min(threads, n);
+        int[] first = new int[strips + 1];   // strip s covers rows [first[s], first[s+1])
+        for (int s = 0; s <= strips; s++)
+            first[s] = (int) ((long) n * s / strips);
+
+        ExecutorService pool = Executors.newFixedThreadPool(strips);
+        try {
+            // phase 1: label every strip on its own
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+            for (int s = 0; s < strips; s++) {
+                final int lo = first[s], hi = first[s + 1];
+                tasks.add(() -> { label(lo, hi); return null; });
+            }
+            runAll(pool, tasks);
+
+            // phase 2: merge along the strip boundaries
+            for (int s = 1; s < strips; s++) {
+                int below = first[s] * n;
+                for (int j = 0; j < n; j++)
+                    if (open.get(below + j) && open.get(below - n + j))
+                        union(below + j, below - n + j);
+            }
+
+            // phase 3: flag the clusters touching the top and bottom rows
+            boolean both = false;
+            for (int j = 0; j < n; j++)
+                if (open.get(j)) flags[find(j)] |= TOP;
+            for (int j = (n - 1) * n; j < n * n; j++)
+                if (open.get(j)) {
+                    int root = find(j);
+                    flags[root] |= BOTTOM;
+                    if (flags[root] == (TOP | BOTTOM)) both = true;
+                }
+            percolates = both;
+
+            // phase 4: point every site at its root
+            tasks.clear();
+            for (int s = 0; s < strips; s++) {
+                final int lo = first[s] * n, hi = first[s + 1] * n;
+                tasks.add(() -> { flatten(lo, hi); return null; });
+            }
+            runAll(pool, tasks);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * show whether site(row i, column j) is open
+     *
+     * @param i: row
+     * @param j: column
+     * @return Boolean value: true(open) or false(block)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isOpen(int i, int j){
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        return open.get((i-1) * n + (j-1));
+    }
+
+    /**
+     * show whether site(row i, column j) is full
+     *
+     * @param i: row
+     * @param j: column
+     * @return Boolean value: true(full) or false(not full)
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isFull(int i, int j){
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        int site = (i-1) * n + (j-1);
+        int root = parent[site] < 0 ? site : parent[site];
+        return (flags[root] & TOP) != 0;
+    }
+
+    /**
+     * show whether the system percolate
+     * @return Boolean value: true(percolates) or false(not percolates)
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    // union every open site of rows [lo, hi) with its open left and up neighbours
+    private void label(int lo, int hi) {
+        Arrays.fill(parent, lo * n, hi * n, -1);
+        for (int i = lo; i < hi; i++) {
+            for (int j = 0; j < n; j++) {
+                int site = i * n + j;
+                if (!open.get(site)) continue;
+                if (j > 0 && open.get(site - 1)) union(site, site - 1);
+                if (i > lo && open.get(site - n)) union(site, site - n);
+            }
+        }
+    }
+
+    // point every site in [lo, hi) directly at its root, without halving
+    private void flatten(int lo, int hi) {
+        for (int site = lo; site < hi; site++) {
+            int root = site;
+            while (parent[root] >= 0) root = parent[root];
+            if (root != site) parent[site] = root;
+        }
+    }
+
+    // root of site p, halving the path on the way up
+    private int find(int p) {
+        while (parent[p] >= 0) {
+            int q = parent[p];
+            if (parent[q] < 0) return q;
+            parent[p] = parent[q];
+            p = parent[q];
+        }
+        return p;
+    }
+
+    // link the smaller cluster under the larger one and merge the root flags
+    private void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return;
+        if (parent[rootP] > parent[rootQ]) { // rootP is the smaller cluster
+            int t = rootP; rootP = rootQ; rootQ = t;
+        }
+        parent[rootP] += parent[rootQ];
+        parent[rootQ] = rootP;
+        flags[rootP] |= flags[rootQ];
+    }
+
+    // run the tasks on the pool and wait for all of them
+    private static void runAll(ExecutorService pool, List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) f.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while labelling", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("labelling failed", e.getCause());
+        }
+    }
+
+    public static void main(String[] args){
+        int n = Integer.parseInt(args[0]);
+        double p = Double.parseDouble(args[1]);
+        int threads = Integer.parseInt(args[2]);
+
+        SplittableRandom random = new SplittableRandom(1);
+        BitSet open = new BitSet(n * n);
+        for (int site = 0; site < n * n; site++)
+            if (random.nextDouble() < p) open.set(site);
+
+        Stopwatch time = new Stopwatch();
+        StripPercolation strips = new StripPercolation(n, open, threads);
+        System.out.println("strips:     " + (strips.percolates() ? "percolates" : "does not percolate")
+                + ", " + time.elapsedTime() + "s");
+
+        time = new Stopwatch();
+        Percolation perc = new Percolation(n);
+        for (int site = open.nextSetBit(0); site >= 0; site = open.nextSetBit(site + 1))
+            perc.open(site);
+        System.out.println("sequential: " + (perc.percolates() ? "percolates" : "does not percolate")
+                + ", " + time.elapsedTime() + "s");
+
+        // the same open sites in a sequential Percolation must agree everywhere
+        System.out.println(disagreements(n, strips, perc) + " sites disagree with Percolation");
+
+        // and so must small random grids, split into 1 to 8 strips
+        int wrong = 0;
+        for (int g = 0; g < 2000; g++) {
+            int size = 1 + random.nextInt(40);
+            BitSet sites = new BitSet(size * size);
+            for (int site = 0; site < size * size; site++)
+                if (random.nextDouble() < p) sites.set(site);
+            Percolation check = new Percolation(size);
+            for (int site = sites.nextSetBit(0); site >= 0; site = sites.nextSetBit(site + 1))
+                check.open(site);
+            if (disagreements(size, new StripPercolation(size, sites, 1 + g % 8), check) > 0) wrong++;
+        }
+        System.out.println(wrong + " of 2000 small grids disagree with Percolation");
+    }
+
+    // sites where isOpen or isFull differ, plus 1 if percolates differs
+    private static int disagreements(int n, StripPercolation strips, Percolation perc){
+        int wrong = strips.percolates() == perc.percolates() ? 0 : 1;
+        for (int i = 1; i <= n; i++)
+            for (int j = 1; j <= n; j++)
+                if (strips.isOpen(i, j) != perc.isOpen(i, j) || strips.isFull(i, j) != perc.isFull(i, j))
+                    wrong++;
+        return wrong;
+    }
+}
@@ -0,0 +1,63 @@
+package percolation;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/*****************************************************************************
+ *  Compilation:    javac TrialEvent.java;
+ *  Execution:      none
+ *  Dependency:     jdk.jfr (JDK 8u262 or later)
+ *
+ *  TrialEvent is the Java Flight Recorder event of one PercolationStats
+ *  trial. It is only loaded when PercolationMetrics.ENABLED is on, so a JVM
+ *  without JFR runs everything else unchanged. Record with
+ *
+ *      java -Dpercolation.metrics=true -XX:StartFlightRecording=filename=run.jfr ...
+ *****************************************************************************/
+
+@Name("percolation.Trial")
+@Label("Percolation Trial")
+@Category("Percolation")
+@Description("One PercolationStats experiment")
+class TrialEvent extends Event {
+    @Label("Lattice")
+    String lattice;
+
+    @Label("Size")
+    int n;
+
+    @Label("Elements Opened")
+    int opened;
+
+    @Label("Threshold")
+    double threshold;
+
+    @Label("Finds")
+    long finds;
+
+    @Label("Longest Find Path")
+    int maxFindPath;
+
+    @Label("Wall Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long wallTime;
+
+    static void emit(Lattice.Type type, int n, int opened, double threshold,
+                     PercolationMetrics.Counters grid, long nanos) {
+        TrialEvent event = new TrialEvent();
+        if (!event.isEnabled()) return;
+        event.lattice = type.name();
+        event.n = n;
+        event.opened = opened;
+        event.threshold = threshold;
+        if (grid != null) {
+            event.finds = grid.finds;
+            event.maxFindPath = grid.maxFindPath;
+        }
+        event.wallTime = nanos;
+        event.commit();
+    }
+}
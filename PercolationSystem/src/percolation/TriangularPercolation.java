@@ -0,0 +1,122 @@
+package percolation;
+
+/*****************************************************************************
+ *  Compilation:    javac TriangularPercolation.java;
+ *  Execution:      none
+ *  Dependency:     UnionFind.java
+ *
+ *  TriangularPercolation is site percolation on the triangular lattice,
+ *  drawn as an n-by-n rhombus: site (i, j) has the four neighbours of the
+ *  square grid plus (i-1, j+1) and (i+1, j-1), six in all. The system
+ *  percolates when an open cluster joins the first row to the last. The
+ *  site threshold of this lattice is exactly 1/2.
+ *****************************************************************************/
+
+public class TriangularPercolation implements Lattice {
+    private static final byte OPEN = 1;   // site is open
+    private static final byte TOP = 2;    // cluster touches the first row
+    private static final byte BOTTOM = 4; // cluster touches the last row
+
+    private final int n;                  // number of rows in the grid
+    private final UnionFind.Halving uf;   // clusters of sites
+    private final byte[] state;           // OPEN for every site, TOP/BOTTOM valid at roots
+    private boolean percolates;           // some cluster touches both top and bottom
+
+    /**
+     * constructor: create n-by-n grid, with all sites blocked
+     *
+     * @param n: number of rows in the grid
+     * @throws IllegalArgumentException if(n <=0) or n*n sites do not fit in an array
+     */
+    public TriangularPercolation(int n){
+        if (n <= 0) throw new IllegalArgumentException("n should be larger than 0");
+        if ((long) n * n > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("n is too large");
+        this.n = n;
+        uf = new UnionFind.Halving(n * n);
+        state = new byte[n * n];
+    }
+
+    /**
+     * open site(row i, column j) if it is not open already
+     * and union it with its open neighbours
+     *
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public void open(int i, int j){
+        openSite(index(i, j));
+    }
+
+    /**
+     * open the site with linear index (i-1) * n + (j-1)
+     *
+     * @throws IndexOutOfBoundsException if site is outside 0 .. n*n-1
+     */
+    public void open(int site){
+        if (site < 0 || site >= state.length)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        openSite(site);
+    }
+
+    public int elements(){
+        return state.length;
+    }
+
+    /**
+     * show whether site(row i, column j) is open
+     *
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isOpen(int i, int j){
+        return state[index(i, j)] != 0;
+    }
+
+    /**
+     * show whether site(row i, column j) is full
+     *
+     * @throws IndexOutOfBoundsException if (i,j) is outside the range from (1,1) to (n,n)
+     */
+    public boolean isFull(int i, int j){
+        return (state[uf.find(index(i, j))] & TOP) != 0;
+    }
+
+    public boolean percolates(){
+        return percolates;
+    }
+
+    private void openSite(int site) {
+        if (state[site] != 0) return;
+        int i = site / n;                  // 0-based row and column
+        int j = site - i * n;
+
+        byte flags = OPEN;
+        if (i == 0) flags |= TOP;
+        if (i == n - 1) flags |= BOTTOM;
+        state[site] = flags;
+
+        if (i > 0     && state[site - n] != 0) union(site, site - n);
+        if (i < n - 1 && state[site + n] != 0) union(site, site + n);
+        if (j > 0     && state[site - 1] != 0) union(site, site - 1);
+        if (j < n - 1 && state[site + 1] != 0) union(site, site + 1);
+        // the two diagonal neighbours that make the lattice triangular
+        if (i > 0 && j < n - 1 && state[site - n + 1] != 0) union(site, site - n + 1);
+        if (i < n - 1 && j > 0 && state[site + n - 1] != 0) union(site, site + n - 1);
+
+        if ((state[uf.find(site)] & (TOP | BOTTOM)) == (TOP | BOTTOM)) percolates = true;
+    }
+
+    // merge the clusters of p and q; the merged root gets the flags of both
+    private void union(int p, int q) {
+        int rootP = uf.find(p);
+        int rootQ = uf.find(q);
+        if (rootP == rootQ) return;
+        byte flags = (byte) (state[rootP] | state[rootQ]);
+        state[uf.union(rootP, rootQ)] = flags;
+    }
+
+    private int index(int i, int j) {
+        if (i < 1||j < 1||i > n||j > n)
+            throw new IndexOutOfBoundsException("index out of bounds");
+        return (i-1) * n + (j-1);
+    }
+}
@@ -0,0 +1,260 @@
+package percolation;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/*****************************************************************************
+ *  Compilation:    javac UnionFind.java;
+ *  Execution:      none
+ *  Dependency:     none
+ *
+ *  UnionFind is the disjoint-set structure of a percolation grid, over the
+ *  sites 0 .. sites()-1. Every implementation keeps its forest in primitive
+ *  arrays and differs only in how trees are linked and how paths are
+ *  shortened:
+ *
+ *      Weighted      union by size, no path compression (algs4's
+ *                    WeightedQuickUnionUF); depth <= lg n
+ *      Compression   union by rank, full path compression (two passes)
+ *      Halving       union by size, path halving: every node on the path
+ *                    skips to its grandparent (Percolation's)
+ *      Splitting     union by size, path splitting: like halving, but every
+ *                    node on the path, not every other one, is relinked
+ *      Randomized    link by a random priority fixed per site, path halving;
+ *                    no size or rank is compared at all
+ *
+ *  parent(p) exposes the raw forest (without compressing anything) so that
+ *  UnionFindBenchmark can measure tree depths.
+ *****************************************************************************/
+
+public interface UnionFind {
+
+    /**
+     * number of elements
+     * @return int value: elements are 0 .. sites()-1
+     */
+    int sites();
+
+    /**
+     * root of the set containing p; may shorten the path to it
+     * @return int value: the root
+     */
+    int find(int p);
+
+    /**
+     * merge the sets containing p and q
+     * @return int value: root of the merged set
+     */
+    int union(int p, int q);
+
+    /**
+     * number of elements in the set containing p
+     * @return int value: size of the set
+     */
+    int size(int p);
+
+    /**
+     * parent of p in the forest, p itself at a root; changes nothing
+     * @return int value: the parent
+     */
+    int parent(int p);
+
+    /**
+     * Weighted: union by size, no path compression
+     */
+    class Weighted implements UnionFind {
+        private final int[] parent;
+        private final int[] size;
+
+        public Weighted(int sites) {
+            parent = new int[sites];
+            size = new int[sites];
+            for (int p = 0; p < sites; p++) parent[p] = p;
+            Arrays.fill(size, 1);
+        }
+
+        public int sites()         { return parent.length; }
+        public int parent(int p)   { return parent[p]; }
+        public int size(int p)     { return size[find(p)]; }
+
+        public int find(int p) {
+            while (parent[p] != p) p = parent[p];
+            return p;
+        }
+
+        public int union(int p, int q) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) return rootP;
+            if (size[rootP] < size[rootQ]) { int t = rootP; rootP = rootQ; rootQ = t; }
+            parent[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+            return rootP;
+        }
+    }
+
+    /**
+     * Compression: union by rank, full path compression
+     */
+    class Compression implements UnionFind {
+        private final int[] parent;
+        private final byte[] rank;   // at most lg n < 32
+        private final int[] size;
+
+        public Compression(int sites) {
+            parent = new int[sites];
+            rank = new byte[sites];
+            size = new int[sites];
+            for (int p = 0; p < sites; p++) parent[p] = p;
+            Arrays.fill(size, 1);
+        }
+
+        public int sites()         { return parent.length; }
+        public int parent(int p)   { return parent[p]; }
+        public int size(int p)     { return size[find(p)]; }
+
+        public int find(int p) {
+            int root = p;
+            while (parent[root] != root) root = parent[root];
+            while (p != root) {
+                int next = parent[p];
+                parent[p] = root;
+                p = next;
+            }
+            return root;
+        }
+
+        public int union(int p, int q) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) return rootP;
+            if (rank[rootP] < rank[rootQ]) { int t = rootP; rootP = rootQ; rootQ = t; }
+            else if (rank[rootP] == rank[rootQ]) rank[rootP]++;
+            parent[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+            return rootP;
+        }
+    }
+
+    /**
+     * Halving: union by size, path halving; a root stores -(set size) in parent[]
+     */
+    final class Halving implements UnionFind {
+        private final int[] parent;
+
+        public Halving(int sites) {
+            parent = new int[sites];
+            Arrays.fill(parent, -1);
+        }
+
+        public int sites()         { return parent.length; }
+        public int parent(int p)   { return parent[p] < 0 ? p : parent[p]; }
+        public int size(int p)     { return -parent[find(p)]; }
+
+        public int find(int p) {
+            while (parent[p] >= 0) {
+                int q = parent[p];
+                if (parent[q] < 0) return q;
+                parent[p] = parent[q];
+                p = parent[q];
+            }
+            return p;
+        }
+
+        public int union(int p, int q) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) return rootP;
+            if (parent[rootP] > parent[rootQ]) { int t = rootP; rootP = rootQ; rootQ = t; }
+            parent[rootP] += parent[rootQ];
+            parent[rootQ] = rootP;
+            return rootP;
+        }
+    }
+
+    /**
+     * Splitting: union by size, path splitting; a root stores -(set size) in parent[]
+     */
+    class Splitting implements UnionFind {
+        private final int[] parent;
+
+        public Splitting(int sites) {
+            parent = new int[sites];
+            Arrays.fill(parent, -1);
+        }
+
+        public int sites()         { return parent.length; }
+        public int parent(int p)   { return parent[p] < 0 ? p : parent[p]; }
+        public int size(int p)     { return -parent[find(p)]; }
+
+        public int find(int p) {
+            while (parent[p] >= 0) {
+                int q = parent[p];
+                if (parent[q] < 0) return q;
+                parent[p] = parent[q];
+                p = q;
+            }
+            return p;
+        }
+
+        public int union(int p, int q) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) return rootP;
+            if (parent[rootP] > parent[rootQ]) { int t = rootP; rootP = rootQ; rootQ = t; }
+            parent[rootP] += parent[rootQ];
+            parent[rootQ] = rootP;
+            return rootP;
+        }
+    }
+
+    /**
+     * Randomized: link the root of lower random priority under the other, path halving
+     */
+    class Randomized implements UnionFind {
+        private final int[] parent;
+        private final int[] priority;
+        private final int[] size;
+
+        public Randomized(int sites) {
+            this(sites, 0x9e3779b97f4a7c15L);
+        }
+
+        public Randomized(int sites, long seed) {
+            parent = new int[sites];
+            priority = new int[sites];
+            size = new int[sites];
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int p = 0; p < sites; p++) {
+                parent[p] = p;
+                priority[p] = random.nextInt();
+            }
+            Arrays.fill(size, 1);
+        }
+
+        public int sites()         { return parent.length; }
+        public int parent(int p)   { return parent[p]; }
+        public int size(int p)     { return size[find(p)]; }
+
+        public int find(int p) {
+            while (parent[p] != p) {
+                parent[p] = parent[parent[p]];
+                p = parent[p];
+            }
+            return p;
+        }
+
+        public int union(int p, int q) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) return rootP;
+            // ties are broken by index so the order is total
+            if (priority[rootP] < priority[rootQ]
+                    || (priority[rootP] == priority[rootQ] && rootP < rootQ)) {
+                int t = rootP; rootP = rootQ; rootQ = t;
+            }
+            parent[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+            return rootP;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package percolation;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/*****************************************************************************
+ *  Compilation:    javac UnionFindBenchmark.java;
+ *  Execution:      java UnionFindBenchmark n trials seed;
+ *  Dependency:     Percolation.java
+ *                  UnionFind.java
+ *
+ *  UnionFindBenchmark runs the same random percolation trials on a
+ *  Percolation built on every UnionFind strategy and prints, per strategy,
+ *
+ *      open        ns per open(i, j) until the grid percolates
+ *      isFull      ns per isFull(i, j) over every site afterwards
+ *      percolates  ns per percolates() call between opens: the time of the
+ *                  trial loop, which calls it after every open, minus the
+ *                  time of the same opens on a fresh grid without it (a
+ *                  difference, so it is noisy and can even be negative)
+ *      depth       largest tree depth when the grid percolates (before the
+ *                  isFull pass compresses anything), worst over all trials
+ *      full        full sites over all trials; the same for every strategy
+ *
+ *  Trial t opens its sites in an order drawn from a stream split from seed,
+ *  so all strategies see exactly the same grids; the order is drawn before
+ *  the timed loops. Every strategy runs all its
+ *  trials twice and only the second round is timed, to let the JIT settle.
+ *****************************************************************************/
+
+public class UnionFindBenchmark {
+
+    private static final String[] NAMES = {
+        "Weighted", "Compression", "Halving", "Splitting", "Randomized"
+    };
+
+    // a fresh union-find of strategy NAMES[strategy]
+    private static UnionFind create(int strategy, int sites) {
+        switch (strategy) {
+            case 0:  return new UnionFind.Weighted(sites);
+            case 1:  return new UnionFind.Compression(sites);
+            case 2:  return new UnionFind.Halving(sites);
+            case 3:  return new UnionFind.Splitting(sites);
+            default: return new UnionFind.Randomized(sites);
+        }
+    }
+
+    // totals of one strategy over all trials
+    private static class Result {
+        long openNanos, opens;
+        long fullNanos, fulls;
+        long percolatesNanos, percolatesCalls;
+        int depth;
+        long full;       // printed, so the JIT cannot drop the queries
+    }
+
+    private static Result run(int strategy, int n, int trials, long seed) {
+        Result result = new Result();
+        SplittableRandom master = new SplittableRandom(seed);
+        int[] sites = new int[n * n];
+        for (int t = 0; t < trials; t++) {
+            // the order of PercolationTrial's partial Fisher-Yates shuffle, drawn in full
+            SplittableRandom random = master.split();
+            for (int k = 0; k < sites.length; k++) sites[k] = k;
+            for (int k = 0; k < sites.length; k++) {
+                int r = k + random.nextInt(sites.length - k);
+                int site = sites[r];
+                sites[r] = sites[k];
+                sites[k] = site;
+            }
+
+            // the trial loop: open until percolates() says so
+            UnionFind uf = create(strategy, n * n);
+            Percolation perc = new Percolation(n, uf);
+            int k = 0;
+            long start = System.nanoTime();
+            while (!perc.percolates()) {
+                int site = sites[k++];
+                perc.open(site / n + 1, site % n + 1);
+            }
+            long trialNanos = System.nanoTime() - start;
+
+            // the same opens on a fresh grid, without asking
+            Percolation bare = new Percolation(n, create(strategy, n * n));
+            start = System.nanoTime();
+            for (int c = 0; c < k; c++) {
+                int site = sites[c];
+                bare.open(site / n + 1, site % n + 1);
+            }
+            long openNanos = System.nanoTime() - start;
+            if (!bare.percolates()) throw new IllegalStateException("the same opens should percolate");
+
+            result.openNanos += openNanos;
+            result.opens += k;
+            result.percolatesNanos += trialNanos - openNanos;
+            result.percolatesCalls += k + 1;
+            result.depth = Math.max(result.depth, maxDepth(uf));
+
+            start = System.nanoTime();
+            for (int i = 1; i <= n; i++)
+                for (int j = 1; j <= n; j++)
+                    if (perc.isFull(i, j)) result.full++;
+            result.fullNanos += System.nanoTime() - start;
+            result.fulls += (long) n * n;
+        }
+        return result;
+    }
+
+    // largest number of links from a site to its root, without compressing
+    private static int maxDepth(UnionFind uf) {
+        int[] depth = new int[uf.sites()];   // depth + 1 once known, 0 before
+        int max = 0;
+        int[] path = new int[64];
+        for (int p = 0; p < depth.length; p++) {
+            int length = 0;
+            int q = p;
+            while (depth[q] == 0 && uf.parent(q) != q) {
+                if (length == path.length) path = Arrays.copyOf(path, 2 * length);
+                path[length++] = q;
+                q = uf.parent(q);
+            }
+            int d = depth[q] == 0 ? 1 : depth[q];   // a root has depth 0
+            depth[q] = d;
+            while (length > 0) depth[path[--length]] = ++d;
+            max = Math.max(max, d - 1);
+        }
+        return max;
+    }
+
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int trials = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+
+        System.out.println("% java UnionFindBenchmark " + n + " " + trials + " " + seed);
+        System.out.printf("%-12s %10s %10s %12s %6s %12s%n", "strategy", "open", "isFull", "percolates",
+                "depth", "full");
+        for (int s = 0; s < NAMES.length; s++) {
+            run(s, n, trials, seed);   // warm-up round
+            Result r = run(s, n, trials, seed);
+            System.out.printf("%-12s %10.1f %10.1f %12.2f %6d %12d%n", NAMES[s],
+                    (double) r.openNanos / r.opens,
+                    (double) r.fullNanos / r.fulls,
+                    (double) r.percolatesNanos / r.percolatesCalls,
+                    r.depth, r.full);
+        }
+    }
+}